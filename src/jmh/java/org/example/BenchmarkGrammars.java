@@ -0,0 +1,100 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Gramáticas y entradas de prueba para los benchmarks.
+ *
+ * Familias disponibles (parámetro 'family' de los benchmarks):
+ * - unambiguous: expresiones aritméticas E/T/F.
+ * - ambiguous:   S -> SS | a, con un número de árboles de Catalan.
+ * - epsilon:     secuencias de T -> A B c con A y B anulables.
+ * - left:        L -> L a | a (recursiva por la izquierda).
+ * - right:       R -> a R | a (recursiva por la derecha).
+ */
+final class BenchmarkGrammars {
+    private BenchmarkGrammars() {
+    }
+
+    /**
+     * Construye una gramática con el mismo formato que GrammarGUI: "LHS RHS1|RHS2|...".
+     */
+    static Grammar grammar(String... lines) {
+        Grammar g = new Grammar();
+        for (String line : lines) {
+            String[] parts = line.trim().split("\\s+", 2);
+            for (String alternative : parts[1].split("[|]", -1))
+                g.addProduction(parts[0], Main.symList(alternative));
+        }
+        return g;
+    }
+
+    /** @return La gramática de una familia */
+    static Grammar family(String family) {
+        switch (family) {
+        case "unambiguous":
+            return grammar("E E+T|T", "T T*F|F", "F (E)|x");
+        case "ambiguous":
+            return grammar("S SS|a");
+        case "epsilon":
+            return grammar("S TS|T", "T ABc", "A a|", "B b|");
+        case "left":
+            return grammar("L La|a");
+        case "right":
+            return grammar("R aR|a");
+        default:
+            throw new IllegalArgumentException("unknown grammar family " + family);
+        }
+    }
+
+    /** @return Una entrada de la familia con 'size' símbolos (aproximadamente) */
+    static ArrayList<String> input(String family, int size) {
+        StringBuilder s = new StringBuilder();
+        switch (family) {
+        case "unambiguous":
+            s.append('x');
+            while (s.length() < size)
+                s.append(s.length() % 4 == 1 ? "+x" : "*x");
+            break;
+        case "epsilon":
+            Random rnd = new Random(size);
+            String[] units = {"abc", "ac", "bc", "c"};
+            while (s.length() < size)
+                s.append(units[rnd.nextInt(units.length)]);
+            break;
+        default:
+            while (s.length() < size)
+                s.append('a');
+        }
+        return Main.symList(s.toString());
+    }
+
+    /**
+     * Genera una gramática grande y aleatoria (reproducible) con no terminales N0..Nn-1.
+     * Cada no terminal tiene de 1 a 4 alternativas de longitud 0 a 4; los símbolos de
+     * cada alternativa son terminales o no terminales cercanos, para que haya ciclos,
+     * símbolos anulables y algunos no alcanzables o no realizables.
+     */
+    static Grammar generated(int nonTerminals, long seed) {
+        Random rnd = new Random(seed);
+        Grammar g = new Grammar();
+        for (int nt = 0; nt < nonTerminals; nt++) {
+            int alts = 1 + rnd.nextInt(4);
+            for (int a = 0; a < alts; a++) {
+                ArrayList<String> rhs = new ArrayList<>();
+                int len = rnd.nextInt(5);
+                for (int i = 0; i < len; i++) {
+                    if (rnd.nextInt(3) == 0) {
+                        rhs.add(String.valueOf((char)('a' + rnd.nextInt(26))));
+                    } else {
+                        int target = Math.floorMod(nt + rnd.nextInt(21) - 5, nonTerminals);
+                        rhs.add("N" + target);
+                    }
+                }
+                g.addProduction("N" + nt, rhs);
+            }
+        }
+        return g;
+    }
+}
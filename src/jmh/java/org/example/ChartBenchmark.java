@@ -0,0 +1,59 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mide la construcción de los conjuntos de estados con árboles (parse) cuando las partes
+ * derechas son largas: S -> X X ... X (rhsLength veces), X -> a | b. Cada avance de un
+ * ítem de S crea una lista de árboles y calcula el hash del ítem, así que aquí se nota el
+ * coste de ImmutableListNode.hashCode y equals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChartBenchmark {
+    @Param({"8", "64", "512"})
+    public int rhsLength;
+
+    private ContextFreeParser parser;
+    private ArrayList<String> input;
+    private ParseOptions options;
+
+    @Setup
+    public void setup() {
+        Grammar g = new Grammar();
+        g.addProduction("S", new ArrayList<>(Collections.nCopies(rhsLength, "X")));
+        g.addProduction("X", Main.symList("a"));
+        g.addProduction("X", Main.symList("b"));
+        parser = new ContextFreeParser(g);
+        input = new ArrayList<>();
+        for (int i = 0; i < rhsLength; i++)
+            input.add(i % 3 == 0 ? "b" : "a");
+        options = ParseOptions.unlimited();
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        ArrayList<NonTerminalTree> trees = new ArrayList<>();
+        bh.consume(parser.parse(input, trees, options));
+        bh.consume(trees);
+    }
+}
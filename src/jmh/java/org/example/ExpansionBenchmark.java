@@ -0,0 +1,51 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide Expansion.expand hasta una profundidad dada, para varias familias de gramáticas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpansionBenchmark {
+    // Límite de Expansion suficientemente alto para no cortar la expansión
+    private static final int LIMIT = Integer.MAX_VALUE;
+
+    @Param({"unambiguous", "ambiguous", "epsilon"})
+    public String family;
+
+    @Param({"3", "4", "5"})
+    public int depth;
+
+    private Grammar grammar;
+
+    @Setup
+    public void setup() {
+        grammar = BenchmarkGrammars.family(family);
+    }
+
+    @Benchmark
+    public int expand() {
+        Expansion e = new Expansion(grammar, LIMIT);
+        for (int d = 0; d < depth; d++)
+            if (! e.expand())
+                break;
+        return e.size();
+    }
+}
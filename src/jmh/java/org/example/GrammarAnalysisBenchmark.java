@@ -0,0 +1,50 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide el análisis estático de gramáticas grandes generadas: GrammarProperties sobre una
+ * gramática ya compilada, y la compilación completa (que incluye las propiedades y las
+ * tablas de predicción).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GrammarAnalysisBenchmark {
+    @Param({"100", "1000", "5000"})
+    public int nonTerminals;
+
+    private Grammar grammar;
+    private CompiledGrammar compiled;
+
+    @Setup
+    public void setup() {
+        grammar = BenchmarkGrammars.generated(nonTerminals, 42);
+        compiled = grammar.compile();
+    }
+
+    @Benchmark
+    public GrammarProperties properties() {
+        return new GrammarProperties(compiled);
+    }
+
+    @Benchmark
+    public CompiledGrammar compile() {
+        return new CompiledGrammar(grammar);
+    }
+}
@@ -0,0 +1,71 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mide ContextFreeParser sobre cada familia de BenchmarkGrammars y tamaños de entrada.
+ * parse usa el presupuesto por defecto (el de la interfaz gráfica), de modo que en la
+ * familia ambigua mide el trabajo hasta el truncamiento; parseForest y recognize no
+ * necesitan límites. 'lookahead' activa el filtrado de predicciones en parse y parseForest
+ * (recognize lo usa siempre).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"unambiguous", "ambiguous", "epsilon", "left", "right"})
+    public String family;
+
+    @Param({"10", "50", "200"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean lookahead;
+
+    private ContextFreeParser parser;
+    private ArrayList<String> input;
+    private ParseOptions options;
+    private ParseOptions forestOptions;
+
+    @Setup
+    public void setup() {
+        parser = new ContextFreeParser(BenchmarkGrammars.family(family));
+        input = BenchmarkGrammars.input(family, size);
+        options = ParseOptions.defaults().setLookahead(lookahead);
+        forestOptions = ParseOptions.unlimited().setLookahead(lookahead);
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        ArrayList<NonTerminalTree> trees = new ArrayList<>();
+        bh.consume(parser.parse(input, trees, options));
+        bh.consume(trees);
+    }
+
+    @Benchmark
+    public ParseForest parseForest() {
+        return parser.parseForest(input, forestOptions);
+    }
+
+    @Benchmark
+    public boolean recognize() {
+        return parser.recognize(input);
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compara el reconocimiento sin árboles (recognize) con el análisis completo (parse)
+ * sobre la misma gramática de expresiones y entradas de tamaño creciente, hasta unos miles
+ * de símbolos (donde se nota que los ítems empaquetados caben en caché). recognizeOffHeap
+ * guarda los conjuntos de estados fuera del heap (ParseOptions.ChartStorage.OFF_HEAP).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecognizerBenchmark {
+    @Param({"9", "49", "199", "1999"})
+    public int size;
+
+    private ContextFreeParser parser;
+    private ArrayList<String> input;
+    private ParseOptions options;
+    private ParseOptions offHeap;
+
+    @Setup
+    public void setup() {
+        parser = new ContextFreeParser(BenchmarkGrammars.family("unambiguous"));
+        input = BenchmarkGrammars.input("unambiguous", size);
+        options = ParseOptions.unlimited();
+        offHeap = ParseOptions.unlimited().setChartStorage(ParseOptions.ChartStorage.OFF_HEAP);
+    }
+
+    @Benchmark
+    public boolean recognize() {
+        return parser.recognize(input);
+    }
+
+    @Benchmark
+    public boolean recognizeOffHeap() {
+        return parser.recognize(input, offHeap);
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        ArrayList<NonTerminalTree> trees = new ArrayList<>();
+        bh.consume(parser.parse(input, trees, options));
+        bh.consume(trees);
+    }
+}
@@ -0,0 +1,55 @@
+package org.example;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compara la generación de una frase aleatoria uniforme a partir de un rango aleatorio
+ * (SentenceGenerator, con enteros grandes) con el muestreo en coma flotante de
+ * SentenceSampler, sobre una gramática de expresiones recursiva por la derecha.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplerBenchmark {
+    @Param({"41", "401", "2001"})
+    public int length;
+
+    private SentenceGenerator generator;
+    private SentenceSampler sampler;
+    private SplittableRandom random;
+
+    @Setup
+    public void setup() {
+        Grammar g = BenchmarkGrammars.grammar("E T+E|T", "T F*T|F", "F (E)|x");
+        generator = new SentenceGenerator(g);
+        generator.count(length);
+        sampler = new SentenceSampler(g, length);
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public String generator() {
+        return generator.randomSentence(length, random);
+    }
+
+    @Benchmark
+    public String sampler() {
+        return sampler.sample(length, random);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide NonTerminalTree.drawSVG sobre el árbol de análisis de una expresión de tamaño dado.
+ * La salida se descarta para medir sólo la generación del SVG, salvo en drawSVGToBuilder,
+ * que escribe en un StringBuilder reutilizado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SvgBenchmark {
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private NonTerminalTree tree;
+    private PrintWriter out;
+    private WritableByteChannel channel;
+    private StringBuilder builder;
+
+    @Setup
+    public void setup() {
+        ContextFreeParser parser = new ContextFreeParser(BenchmarkGrammars.family("unambiguous"));
+        ArrayList<NonTerminalTree> trees = new ArrayList<>();
+        parser.parse(BenchmarkGrammars.input("unambiguous", size), trees, ParseOptions.unlimited());
+        tree = trees.get(0);
+        out = new PrintWriter(Writer.nullWriter());
+        channel = Channels.newChannel(OutputStream.nullOutputStream());
+        builder = new StringBuilder();
+    }
+
+    @Benchmark
+    public void drawSVG() {
+        tree.drawSVG(out);
+    }
+
+    @Benchmark
+    public void drawSVGToChannel() {
+        SVG svg = new SVG(channel);
+        tree.drawSVG(svg);
+        svg.flush();
+    }
+
+    @Benchmark
+    public int drawSVGToBuilder() {
+        builder.setLength(0);
+        SVG svg = new SVG(builder);
+        tree.drawSVG(svg);
+        svg.flush();
+        return builder.length();
+    }
+}
@@ -0,0 +1,131 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * BatchParser: Analiza muchas entradas con una misma gramática, en paralelo.
+ *
+ * Todas las entradas comparten una CompiledGrammar y un ContextFreeParser (que no guarda
+ * estado entre análisis); cada hilo trabajador usa su propia ParserArena. Las entradas se
+ * reparten en bloques entre los hilos de un ExecutorService (por defecto el ForkJoinPool
+ * común) y los resultados se devuelven en el mismo orden que las entradas.
+ *
+ * Cada entrada se analiza con un bosque compartido (parseForest) y sus árboles se cuentan
+ * sin construirlos (countTrees), así que el número es exacto aunque sea enorme, o infinito
+ * si hay derivaciones cíclicas. Los árboles sólo se construyen si se piden.
+ */
+public class BatchParser {
+    // Bloques por hilo: suficientes para repartir bien la carga sin muchas tareas
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ContextFreeParser parser;
+    private final ParseOptions options;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    /**
+     * Crea un analizador por lotes que usa el ForkJoinPool común.
+     * @param grammar La gramática compilada
+     * @param options El presupuesto de cada análisis
+     */
+    public BatchParser(CompiledGrammar grammar, ParseOptions options) {
+        this(grammar, options, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Crea un analizador por lotes que usa un ejecutor dado.
+     * @param grammar La gramática compilada
+     * @param options El presupuesto de cada análisis (no debe modificarse durante el lote)
+     * @param executor El ejecutor donde se analizan los bloques
+     * @param parallelism Número de hilos del ejecutor, para dimensionar los bloques
+     */
+    public BatchParser(CompiledGrammar grammar, ParseOptions options, ExecutorService executor,
+                       int parallelism) {
+        this.parser = new ContextFreeParser(grammar);
+        this.options = options;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Analiza un flujo de entradas. El flujo se consume por completo antes de empezar.
+     * @param inputs Las entradas
+     * @return Un resultado por entrada, en el mismo orden
+     */
+    public List<BatchResult> parseAll(Stream<ArrayList<String>> inputs) {
+        return parseAll(inputs.collect(Collectors.toList()));
+    }
+
+    /**
+     * Analiza una lista de entradas.
+     * @param inputs Las entradas
+     * @return Un resultado por entrada, en el mismo orden
+     */
+    public List<BatchResult> parseAll(List<ArrayList<String>> inputs) {
+        return parseAll(inputs, false);
+    }
+
+    /**
+     * Analiza una lista de entradas.
+     * @param inputs Las entradas
+     * @param keepTrees true para guardar en cada resultado sus árboles de análisis, sin
+     *                  derivaciones cíclicas y a lo sumo options.getMaxTrees()
+     * @return Un resultado por entrada, en el mismo orden
+     */
+    public List<BatchResult> parseAll(final List<ArrayList<String>> inputs, final boolean keepTrees) {
+        final int n = inputs.size();
+        final BatchResult[] results = new BatchResult[n];
+        final int chunk = Math.max(1, (n + parallelism*CHUNKS_PER_THREAD - 1) / (parallelism*CHUNKS_PER_THREAD));
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < n; from += chunk) {
+            final int lo = from;
+            final int hi = Math.min(n, from + chunk);
+            futures.add(executor.submit(() -> {
+                for (int i = lo; i < hi; i++)
+                    results[i] = parseOne(i, inputs.get(i), keepTrees);
+            }));
+        }
+
+        try {
+            for (Future<?> f : futures)
+                f.get();
+        } catch (InterruptedException e) {
+            for (Future<?> f : futures)
+                f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("batch parse interrupted", e);
+        } catch (ExecutionException e) {
+            for (Future<?> f : futures)
+                f.cancel(true);
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new IllegalStateException("batch parse failed", e.getCause());
+        }
+        return Arrays.asList(results);
+    }
+
+    // Analiza una entrada del lote
+    private BatchResult parseOne(int index, ArrayList<String> input, boolean keepTrees) {
+        ParseForest forest = parser.parseForest(input, options);
+        List<NonTerminalTree> trees = Collections.emptyList();
+        if (keepTrees) {
+            trees = new ArrayList<>();
+            for (NonTerminalTree t : forest.trees()) {
+                if (trees.size() >= options.getMaxTrees())
+                    break;
+                trees.add(t);
+            }
+        }
+        return new BatchResult(index, forest.countTrees(), forest.report(), trees);
+    }
+}
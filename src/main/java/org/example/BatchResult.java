@@ -0,0 +1,58 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * BatchResult: Resultado del análisis de una entrada dentro de un lote (BatchParser).
+ */
+public final class BatchResult {
+    private final int index;          // Posición de la entrada en el lote
+    private final DerivationCount treeCount; // Número de árboles de análisis
+    private final ParseReport report; // Informe respecto al presupuesto
+    private final List<NonTerminalTree> trees; // Árboles construidos, si se pidieron
+
+    BatchResult(int index, DerivationCount treeCount, ParseReport report, List<NonTerminalTree> trees) {
+        this.index = index;
+        this.treeCount = treeCount;
+        this.report = report;
+        this.trees = trees;
+    }
+
+    /** @return Posición de la entrada en el lote */
+    public int index() {
+        return index;
+    }
+
+    /** @return true si la entrada tiene al menos un árbol de análisis */
+    public boolean accepted() {
+        return treeCount.isInfinite() || treeCount.count().signum() > 0;
+    }
+
+    /**
+     * @return Número exacto de árboles de análisis, infinito si hay derivaciones cíclicas.
+     *         Si el presupuesto truncó el análisis, cuenta sólo lo reconocido hasta entonces.
+     */
+    public DerivationCount treeCount() {
+        return treeCount;
+    }
+
+    /** @return Los árboles de análisis, o una lista vacía si no se pidieron (ver BatchParser) */
+    public List<NonTerminalTree> trees() {
+        return trees;
+    }
+
+    /** @return true si se superó algún límite del presupuesto */
+    public boolean truncated() {
+        return ! report.complete();
+    }
+
+    /** @return Informe del análisis respecto a su presupuesto */
+    public ParseReport report() {
+        return report;
+    }
+
+    public String toString() {
+        return index + ": " + (accepted() ? "accepted" : "rejected") + ", " + treeCount + " trees"
+            + (truncated() ? ", " + report : "");
+    }
+}
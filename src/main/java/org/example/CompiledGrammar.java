@@ -0,0 +1,259 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * CompiledGrammar: Forma inmutable y compacta de una gramática, pensada para el analizador.
+ *
+ * Cada símbolo recibe un identificador entero denso:
+ * - Los no terminales ocupan los identificadores 0 .. nonTerminalCount()-1, en el orden
+ *   en que fueron definidos (el 0 es el símbolo inicial).
+ * - Los terminales ocupan los identificadores siguientes, en orden de aparición.
+ *
+ * Las producciones también se numeran de forma densa; el lado derecho de cada una es un
+ * arreglo de identificadores. Así el analizador compara y indexa enteros en lugar de cadenas.
+ * Las alternativas repetidas de un mismo no terminal se compilan una sola vez.
+ * Los arreglos devueltos se comparten y no deben modificarse.
+ *
+ * Cada par (producción, posición del punto) es además un ítem con identificador denso,
+ * y para cada no terminal se precalcula su cierre de predicción: los ítems que se añaden
+ * a un conjunto de estados al predecirlo, saltando los símbolos anulables al estilo de
+ * Aycock y Horspool. El analizador predice así con una consulta a la tabla.
+ */
+public final class CompiledGrammar {
+    private final String[] names;              // Nombre de cada símbolo
+    private final Map<String, Integer> ids;    // Identificador de cada nombre
+    private final int ntCount;                 // Número de no terminales
+    private final int[] lhs;                   // No terminal de cada producción
+    private final int[][] rhs;                 // Lado derecho de cada producción
+    private final int[][] byLhs;               // Producciones de cada no terminal
+    private final int[] itemBase;              // Primer ítem de cada producción
+    private final int[] itemProd;              // Producción de cada ítem
+    private final int[] itemPos;               // Posición del punto de cada ítem
+    private final int[] itemNext;              // Símbolo esperado por cada ítem (-1 si está completo)
+    private final GrammarProperties properties;
+    private final int[][] predictions;         // Cierre de predicción de cada no terminal
+
+    /**
+     * Compila una gramática. Normalmente se usa a través de Grammar.compile().
+     * @param grammar La gramática a compilar
+     */
+    CompiledGrammar(Grammar grammar) {
+        ArrayList<String> symbols = new ArrayList<>(grammar.nonTerminals());
+        ids = new HashMap<>();
+        for (int i = 0; i < symbols.size(); i++)
+            ids.put(symbols.get(i), i);
+        ntCount = symbols.size();
+
+        ArrayList<Integer> lhsList = new ArrayList<>();
+        ArrayList<int[]> rhsList = new ArrayList<>();
+        byLhs = new int[ntCount][];
+        for (int nt = 0; nt < ntCount; nt++) {
+            Collection<ArrayList<String>> alts = new LinkedHashSet<>(grammar.expansions(symbols.get(nt)));
+            byLhs[nt] = new int[alts.size()];
+            int k = 0;
+            for (ArrayList<String> alt : alts) {
+                int[] r = new int[alt.size()];
+                for (int i = 0; i < r.length; i++) {
+                    String sym = alt.get(i);
+                    Integer id = ids.get(sym);
+                    if (id == null) { // Terminal nuevo
+                        id = symbols.size();
+                        symbols.add(sym);
+                        ids.put(sym, id);
+                    }
+                    r[i] = id;
+                }
+                byLhs[nt][k++] = rhsList.size();
+                lhsList.add(nt);
+                rhsList.add(r);
+            }
+        }
+
+        names = symbols.toArray(new String[0]);
+        lhs = new int[lhsList.size()];
+        for (int p = 0; p < lhs.length; p++)
+            lhs[p] = lhsList.get(p);
+        rhs = rhsList.toArray(new int[0][]);
+
+        itemBase = new int[lhs.length];
+        int items = 0;
+        for (int p = 0; p < lhs.length; p++) {
+            itemBase[p] = items;
+            items = items + rhs[p].length + 1;
+        }
+        itemProd = new int[items];
+        itemPos = new int[items];
+        itemNext = new int[items];
+        for (int p = 0; p < lhs.length; p++)
+            for (int i = 0; i <= rhs[p].length; i++) {
+                itemProd[itemBase[p] + i] = p;
+                itemPos[itemBase[p] + i] = i;
+                itemNext[itemBase[p] + i] = i == 0 ? -1 : rhs[p][i - 1];
+            }
+
+        properties = new GrammarProperties(this);
+        predictions = new int[ntCount][];
+        for (int nt = 0; nt < ntCount; nt++)
+            predictions[nt] = computePredictions(nt);
+    }
+
+    /**
+     * Calcula el cierre de predicción de un no terminal: los ítems predichos para sus
+     * producciones, los de los no terminales que éstos esperan a continuación, y los
+     * obtenidos al saltar símbolos anulables, de forma transitiva.
+     */
+    private int[] computePredictions(int nt) {
+        boolean[] seenNt = new boolean[ntCount];
+        boolean[] seenItem = new boolean[itemProd.length];
+        ArrayList<Integer> result = new ArrayList<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        seenNt[nt] = true;
+        for (int p : byLhs[nt])
+            queue.add(item(p, rhs[p].length));
+        while (!queue.isEmpty()) {
+            int it = queue.remove();
+            if (seenItem[it])
+                continue;
+            seenItem[it] = true;
+            result.add(it);
+            int pos = itemPos[it];
+            if (pos == 0)
+                continue;
+            int sym = rhs[itemProd[it]][pos - 1];
+            if (isNonTerminal(sym)) {
+                if (!seenNt[sym]) {
+                    seenNt[sym] = true;
+                    for (int p : byLhs[sym])
+                        queue.add(item(p, rhs[p].length));
+                }
+                if (properties.isNullable(sym))
+                    queue.add(it - 1);
+            }
+        }
+        int[] out = new int[result.size()];
+        for (int i = 0; i < out.length; i++)
+            out[i] = result.get(i);
+        return out;
+    }
+
+    /** @return El identificador del símbolo inicial */
+    public int start() {
+        return 0;
+    }
+
+    /** @return Número total de símbolos (no terminales y terminales) */
+    public int symbolCount() {
+        return names.length;
+    }
+
+    /** @return Número de no terminales */
+    public int nonTerminalCount() {
+        return ntCount;
+    }
+
+    /** @return Número de producciones */
+    public int productionCount() {
+        return lhs.length;
+    }
+
+    /**
+     * Obtiene el identificador de un símbolo.
+     * @param name Nombre del símbolo
+     * @return Su identificador, o -1 si no aparece en la gramática
+     */
+    public int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /** @return El nombre del símbolo con el identificador dado */
+    public String name(int sym) {
+        return names[sym];
+    }
+
+    /** @return true si el símbolo es un no terminal */
+    public boolean isNonTerminal(int sym) {
+        return sym >= 0 && sym < ntCount;
+    }
+
+    /** @return true si el símbolo es un terminal */
+    public boolean isTerminal(int sym) {
+        return sym >= ntCount;
+    }
+
+    /** @return El no terminal del lado izquierdo de una producción */
+    public int lhs(int prod) {
+        return lhs[prod];
+    }
+
+    /** @return El lado derecho de una producción */
+    public int[] rhs(int prod) {
+        return rhs[prod];
+    }
+
+    /** @return Las producciones de un no terminal */
+    public int[] productions(int nt) {
+        return byLhs[nt];
+    }
+
+    /** @return Número de ítems (pares producción, posición del punto) */
+    public int itemCount() {
+        return itemProd.length;
+    }
+
+    /** @return El identificador del ítem con la producción y el punto dados */
+    public int item(int prod, int pos) {
+        return itemBase[prod] + pos;
+    }
+
+    /** @return La producción de un ítem */
+    public int itemProduction(int item) {
+        return itemProd[item];
+    }
+
+    /** @return La posición del punto de un ítem */
+    public int itemPosition(int item) {
+        return itemPos[item];
+    }
+
+    /**
+     * El símbolo que un ítem espera a continuación: el que está a la izquierda del punto,
+     * porque el analizador avanza de derecha a izquierda.
+     * @return El símbolo, o -1 si el ítem está completo
+     */
+    public int itemExpected(int item) {
+        return itemNext[item];
+    }
+
+    /** @return Las propiedades (anulables, cíclicos, ...) de la gramática */
+    public GrammarProperties properties() {
+        return properties;
+    }
+
+    /**
+     * Obtiene el cierre de predicción de un no terminal.
+     * Todos los ítems tienen como posición final la posición en que se predice.
+     * @param nt El no terminal predicho
+     * @return Identificadores de ítems del cierre
+     */
+    public int[] predictions(int nt) {
+        return predictions[nt];
+    }
+
+    /**
+     * Convierte una cadena de entrada en identificadores.
+     * Los símbolos que no aparecen en la gramática se convierten en -1.
+     */
+    public int[] encode(ArrayList<String> input) {
+        int[] out = new int[input.size()];
+        for (int i = 0; i < out.length; i++)
+            out[i] = id(input.get(i));
+        return out;
+    }
+}
@@ -1,10 +1,11 @@
 package org.example;
 
 import java.io.PrintWriter;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
@@ -14,8 +15,10 @@ import java.util.Set;
  * 
  * - Analiza de derecha a izquierda.
  * - Puede manejar gramáticas ambiguas y producciones vacías (epsilon).
- * - Utiliza un límite de expansión para prevenir bucles infinitos en gramáticas complejas.
- * - Genera árboles de análisis sintáctico para las entradas válidas.
+ * - Respeta un presupuesto configurable (ParseOptions) para prevenir bucles infinitos en
+ *   gramáticas complejas, e informa de qué límite se superó y dónde (ParseReport).
+ * - Genera árboles de análisis sintáctico para las entradas válidas, internados con una
+ *   TreeFactory por análisis: los subárboles comunes se comparten.
  * 
  * El parser se escarga de:
  * 1. Determinar si una cadena de entrada pertenece al lenguaje definido por la gramática.
@@ -24,109 +27,426 @@ import java.util.Set;
  * 
  * 'grammar' es la gramática a utilizar, 'input' es la cadena de entrada a analizar,
  * y 'results' es donde se almacenarán los árboles de análisis resultantes.
+ *
+ * Para saber sólo si una cadena pertenece al lenguaje, recognize evita construir árboles
+ * y guarda cada ítem empaquetado en un long (PackedStateSet); con ParseOptions.setChartStorage
+ * los conjuntos de estados pueden guardarse fuera del heap (OffHeapChart) para entradas muy
+ * largas.
+ * Además de parse, que construye todos los árboles mientras avanza, parseForest reconoce
+ * la entrada con ítems desnudos (sin árboles) y devuelve un bosque compartido (ParseForest)
+ * del que los árboles se extraen de forma perezosa. En ese modo cada conjunto de estados
+ * tiene tamaño polinómico aunque la gramática sea muy ambigua, así que por defecto no se
+ * aplica ningún límite.
+ *
+ * Con la opción lookahead (ParseOptions.setLookahead) no se predicen las alternativas cuya
+ * parte por reconocer no puede terminar en el símbolo de entrada a la izquierda de la
+ * posición actual (conjuntos LAST de GrammarProperties); recognize la usa siempre.
+ *
+ * IncrementalParser reutiliza los conjuntos de estados de un análisis anterior para volver
+ * a reconocer una entrada tras editarla.
+ *
+ * Los conjuntos de estados (StateSet) están indexados por el símbolo que cada ítem espera,
+ * de modo que completar y escanear sólo visitan los ítems que pueden avanzar.
+ *
+ * El analizador no guarda estado entre análisis: la gramática compilada es inmutable y las
+ * estructuras de trabajo se toman de la ParserArena de cada hilo. Por eso una misma
+ * instancia puede compartirse entre hilos.
  */
 
 public class ContextFreeParser {
 
-    // Símbolo de inicio para la gramática aumentada
-    private static final String START = "Start";
-    // Límite para evitar expansiones infinitas
-    private static final int EXPANSION_LIMIT = 100;
+    // Estimaciones de memoria por ítem (objeto, nodo de lista y entradas de índice)
+    private static final long TREE_ITEM_BYTES = 112;
+    private static final long DOTTED_ITEM_BYTES = 80;
 
-    private final Grammar grammar;
-// Almacena los estados del último análisis realizado
-    private ArrayList<Set<ParserStateItem>> lastStates;
+    private final CompiledGrammar grammar;
 
     public ContextFreeParser(Grammar grammar) {
+        this(grammar.compile());
+    }
+
+    public ContextFreeParser(CompiledGrammar grammar) {
         this.grammar = grammar;
-        this.lastStates = null;
     }
 
-    // Método principal de análisis
+    // Método principal de análisis, con el presupuesto por defecto
     public boolean parse(final ArrayList<String> input, ArrayList<NonTerminalTree> results) {
-        ArrayList<Set<ParserStateItem>> states = new ArrayList<>();
-        for (int i = 0; i <= input.size(); i++)
-		states.add(null);
+        return parse(input, results, ParseOptions.defaults()).complete();
+    }
+
+    /**
+     * Analiza la entrada construyendo todos los árboles, dentro de un presupuesto.
+     * @param input La cadena de entrada
+     * @param results Donde se almacenan los árboles resultantes
+     * @param options Los límites del análisis
+     * @return Informe con el límite superado, si lo hubo
+     */
+    public ParseReport parse(final ArrayList<String> input, ArrayList<NonTerminalTree> results,
+                             ParseOptions options) {
+        ParseBudget budget = new ParseBudget(options, TREE_ITEM_BYTES);
+        final int n = input.size();
+        ParserArena arena = ParserArena.acquire();
+        try {
+            ArrayList<StateSet<ParserStateItem>> states = arena.stateSets(n + 1);
+            TreeFactory trees = new TreeFactory();
+            buildStates(input, states, trees, budget, options.isLookahead(), arena);
+
+            // Recopila los resultados
+            results.clear();
+            for (ParserStateItem item : states.get(0))
+                if (item.finished(grammar.start()) && item.start() == n) {
+                    if (! budget.admitTree(results.size()))
+                        break;
+                    results.add(item.complete(grammar, trees));
+                }
+            arena.recycle(states);
+        } finally {
+            arena.release();
+        }
+        return budget.report();
+    }
 
-        boolean truncated = false;
+    // Construye los conjuntos de estados con árboles (internados en 'trees'), de derecha a izquierda
+    private void buildStates(final ArrayList<String> input, ArrayList<StateSet<ParserStateItem>> states,
+                             TreeFactory trees, ParseBudget budget, boolean lookahead, ParserArena arena) {
+        final int[] syms = grammar.encode(input);
+        final int n = syms.length;
+        final GrammarProperties props = lookahead ? grammar.properties() : null;
+        Queue<ParserStateItem> queue = arena.queue();
+        // Árboles de las expansiones nulas en cada posición, por no terminal
+        Map<Integer, Set<NonTerminalTree>> empties = new HashMap<>();
 
         // Itera de derecha a izquierda en la entrada
-        for (int pos = input.size(); pos >= 0; pos--) {
-            Queue<ParserStateItem> queue = new ArrayDeque<>();
-            if (pos == input.size()) {
+        for (int pos = n; pos >= 0 && ! budget.stopped(); pos--) {
+            queue.clear();
+            // No terminales ya predichos en esta posición
+            BitSet predicted = arena.predicted();
+            // Símbolo a la izquierda, que deben poder reconocer los ítems predichos
+            final int leftSym = pos > 0 ? syms[pos-1] : -1;
+            if (pos == n) {
                 // Estado inicial (comenzando desde el final de la cadena)
-                ArrayList<String> rhs0 = new ArrayList<>();
-                rhs0.add(grammar.getStart());
-                queue.add(new ParserStateItem(START, rhs0, pos));
+                predict(grammar.start(), pos, leftSym, props, predicted, queue);
             } else {
                 // Escanea un símbolo termina
-                String nextSym = input.get(pos);
-                if (grammar.expansions(nextSym) == null) { // terminal
-                    TerminalTree t = new TerminalTree(nextSym);
-                    for (ParserStateItem item : states.get(pos+1))
-                        if (item.match(nextSym))
-                            queue.add(new ParserStateItem(item, t));
+                int nextSym = syms[pos];
+                if (grammar.isTerminal(nextSym)) {
+                    TerminalTree t = trees.terminal(input.get(pos));
+                    for (ParserStateItem item : states.get(pos+1).waiting(nextSym))
+                        queue.add(new ParserStateItem(item, t, trees));
                 }
             }
 
-            Set<ParserStateItem> state = new HashSet<>();
-            states.set(pos, state);
-            Set<NonTerminalTree> empties = new HashSet<>();
+            StateSet<ParserStateItem> state = states.get(pos);
+            empties.clear();
             // Evita expansiones ilimitadas
-            while (! queue.isEmpty()) {
-                if (state.size() > EXPANSION_LIMIT) {
-                    truncated = true;
-                    break;
-                }
+            while (! queue.isEmpty() && budget.admit(state.size(), pos)) {
                 ParserStateItem item = queue.remove();
-                if (! state.contains(item)) {
-                    state.add(item);
+                if (state.add(item, item.finished() ? -1 : item.current())) {
+                    budget.added();
                     // Expande el item
                     if (item.finished()) {
                         // completa una produccion
-                        NonTerminalTree t = item.complete();
-                        String nt = t.nonTerminal();
+                        NonTerminalTree t = item.complete(grammar, trees);
+                        int nt = item.nonTerminal();
                         final int end = item.start();
                         if (end == pos)
                             // Las expansiones nulas necesitan tratamiento especial
-                            empties.add(t);
-                        for (ParserStateItem prev : states.get(end))
-                            if (prev.match(nt))
-                                queue.add(new ParserStateItem(prev, t));
+                            empties.computeIfAbsent(nt, k -> new HashSet<>()).add(t);
+                        for (ParserStateItem prev : states.get(end).waiting(nt))
+                            queue.add(new ParserStateItem(prev, t, trees));
                     } else {
                         // predice: expande un no terminal
-                        String nt = item.current();
-                        Collection<ArrayList<String>> rhss =
-                            grammar.expansions(nt);
-                        if (rhss != null) {
-                            for (ArrayList<String> rhs : rhss)
-                                queue.add(new ParserStateItem(nt, rhs, pos));
-                            for (NonTerminalTree t : empties)
-                                if (t.nonTerminal().equals(nt))
-                                    queue.add(new ParserStateItem(item, t));
+                        int nt = item.current();
+                        if (grammar.isNonTerminal(nt)) {
+                            predict(nt, pos, leftSym, props, predicted, queue);
+                            Set<NonTerminalTree> ts = empties.get(nt);
+                            if (ts != null)
+                                for (NonTerminalTree t : ts)
+                                    queue.add(new ParserStateItem(item, t, trees));
                         }
                     }
                 }
             }
         }
+    }
 
-        // Recopila los resultados
-        results.clear();
-        for (ParserStateItem item : states.get(0))
-            if (item.finished(START))
-                results.add(item.completeTop());
-        lastStates = states;
-        return ! truncated;
-    }
-
-    // Método para imprimir los estados del último análisis
-    public void printStates(PrintWriter out) {
-        if (lastStates != null)
-            for (int i = 0; i < lastStates.size(); i++) {
-                out.println("State " + i + ":");
-                for (ParserStateItem item : lastStates.get(i))
-                    out.println(item.toString());
-                out.println();
+    /**
+     * Predice un no terminal a partir de su cierre de predicción.
+     * Los ítems que saltan símbolos anulables se omiten, porque aquí cada símbolo
+     * reconocido necesita su árbol; las expansiones nulas se tratan con 'empties'.
+     * Si 'props' no es null, se omiten también los ítems que no encajan con 'leftSym'.
+     */
+    private void predict(int nt, int pos, int leftSym, GrammarProperties props,
+                         BitSet predicted, Queue<ParserStateItem> queue) {
+        if (predicted.get(nt))
+            return;
+        for (int it : grammar.predictions(nt)) {
+            int prod = grammar.itemProduction(it);
+            if (grammar.itemPosition(it) == grammar.rhs(prod).length) {
+                predicted.set(grammar.lhs(prod));
+                if (props == null || props.viable(it, leftSym))
+                    queue.add(new ParserStateItem(grammar, prod, pos));
             }
+        }
+    }
+
+    /**
+     * Determina si la entrada pertenece al lenguaje, sin construir ningún árbol.
+     * Usa ítems empaquetados en un long (PackedStateSet) y conjuntos de estados reutilizados
+     * de la ParserArena del hilo, así que no crea objetos por ítem ni apenas reserva memoria
+     * por análisis.
+     * @param input La cadena de entrada
+     * @return true si la entrada pertenece al lenguaje de la gramática
+     */
+    public boolean recognize(final ArrayList<String> input) {
+        return recognize(input, ParseOptions.unlimited());
+    }
+
+    /**
+     * Determina si la entrada pertenece al lenguaje, guardando los conjuntos de estados
+     * donde indiquen las opciones (ParseOptions.setChartStorage). Los límites de las
+     * opciones no se aplican: el resultado es siempre exacto.
+     * @param input La cadena de entrada
+     * @param options Las opciones, de las que sólo se usa el almacenamiento
+     * @return true si la entrada pertenece al lenguaje de la gramática
+     */
+    public boolean recognize(final ArrayList<String> input, ParseOptions options) {
+        final int[] syms = grammar.encode(input);
+        final int n = syms.length;
+        ParserArena arena = ParserArena.acquire();
+        try (PackedChart chart = options.getChartStorage() == ParseOptions.ChartStorage.HEAP
+                                 ? new HeapChart(arena, n)
+                                 : new OffHeapChart(arena, n, n > options.getScratchThreshold())) {
+            PackedStateSet first = recognizePacked(syms, chart, arena);
+            boolean accepted = false;
+            for (int prod : grammar.productions(grammar.start()))
+                if (first.contains(PackedStateSet.pack(grammar.item(prod, 0), n)))
+                    accepted = true;
+            return accepted;
+        } finally {
+            arena.release();
+        }
+    }
+
+    /**
+     * Construye los conjuntos de estados de ítems empaquetados, de derecha a izquierda y
+     * siempre con lookahead. Cada conjunto hace de cola de trabajo: sus ítems se procesan
+     * en orden de inserción mientras se añaden los nuevos.
+     * @return El conjunto de la posición 0 (válido hasta que se cierre el chart)
+     */
+    private PackedStateSet recognizePacked(final int[] input, PackedChart chart, ParserArena arena) {
+        final GrammarProperties props = grammar.properties();
+        final int n = input.length;
+        PackedStateSet state = null;
+
+        for (int pos = n; pos >= 0; pos--) {
+            state = chart.open(pos);
+            BitSet predicted = arena.predicted();
+            final int leftSym = pos > 0 ? input[pos-1] : -1;
+            if (pos == n) {
+                predictPacked(grammar.start(), pos, leftSym, props, predicted, state);
+            } else {
+                int nextSym = input[pos];
+                if (grammar.isTerminal(nextSym))
+                    for (int i = chart.firstWaiting(pos + 1, nextSym); i >= 0; i = chart.nextWaiting(pos + 1, i))
+                        addPacked(state, PackedStateSet.advance(chart.get(pos + 1, i)));
+            }
+
+            for (int i = 0; i < state.size(); i++) {
+                long item = state.get(i);
+                int it = PackedStateSet.item(item);
+                int sym = grammar.itemExpected(it);
+                if (sym < 0) {
+                    final int end = PackedStateSet.finish(item);
+                    if (end != pos) { // Las expansiones nulas ya se saltaron al predecir
+                        int nt = grammar.lhs(grammar.itemProduction(it));
+                        for (int j = chart.firstWaiting(end, nt); j >= 0; j = chart.nextWaiting(end, j))
+                            addPacked(state, PackedStateSet.advance(chart.get(end, j)));
+                    }
+                } else if (grammar.isNonTerminal(sym)) {
+                    if (! predicted.get(sym))
+                        predictPacked(sym, pos, leftSym, props, predicted, state);
+                    // Aycock-Horspool: un símbolo anulable puede saltarse directamente
+                    if (props.isNullable(sym))
+                        addPacked(state, PackedStateSet.advance(item));
+                }
+            }
+            chart.seal(pos);
+        }
+        return state;
+    }
+
+    // Añade al conjunto los ítems del cierre de predicción de 'nt' que encajan con 'leftSym'
+    private void predictPacked(int nt, int pos, int leftSym, GrammarProperties props,
+                               BitSet predicted, PackedStateSet state) {
+        for (int it : grammar.predictions(nt)) {
+            predicted.set(grammar.lhs(grammar.itemProduction(it)));
+            if (props.viable(it, leftSym))
+                state.add(PackedStateSet.pack(it, pos), grammar.itemExpected(it));
+        }
+    }
+
+    private void addPacked(PackedStateSet state, long item) {
+        state.add(item, grammar.itemExpected(PackedStateSet.item(item)));
+    }
+
+    /**
+     * Cuenta los árboles de análisis de la entrada sin construirlos, por programación
+     * dinámica sobre el bosque compartido, así que no hay límite de árboles que valga.
+     * Si algún árbol contiene una derivación cíclica (sólo es posible si la gramática es
+     * infinitamente ambigua), el número es infinito.
+     * @param input La cadena de entrada
+     * @return El número de árboles (cero si la entrada no pertenece al lenguaje)
+     */
+    public DerivationCount countDerivations(final ArrayList<String> input) {
+        return parseForest(input).countTrees();
+    }
+
+    /**
+     * Analiza la entrada produciendo un bosque de análisis compartido.
+     * @param input La cadena de entrada
+     * @return El bosque de análisis; accepted() indica si la entrada pertenece al lenguaje
+     */
+    public ParseForest parseForest(final ArrayList<String> input) {
+        return parseForest(input, ParseOptions.unlimited());
+    }
+
+    /**
+     * Analiza la entrada produciendo un bosque de análisis compartido, dentro de un presupuesto.
+     * Si se supera un límite, el bosque contiene sólo lo reconocido hasta entonces y
+     * report() indica qué límite fue.
+     * Los conjuntos de estados pasan a formar parte del bosque, así que no se reutilizan.
+     * @param input La cadena de entrada
+     * @param options Los límites del análisis
+     * @return El bosque de análisis
+     */
+    public ParseForest parseForest(final ArrayList<String> input, ParseOptions options) {
+        final int[] syms = grammar.encode(input);
+        ParseBudget budget = new ParseBudget(options, DOTTED_ITEM_BYTES);
+        ArrayList<StateSet<DottedItem>> states = new ArrayList<>();
+        for (int i = 0; i <= syms.length; i++)
+            states.add(new StateSet<>());
+        ParserArena arena = ParserArena.acquire();
+        try {
+            recognizeStates(syms, states, syms.length, false, budget, options.isLookahead(), arena);
+        } finally {
+            arena.release();
+        }
+        return new ParseForest(grammar, syms, states, budget.report());
+    }
+
+    /**
+     * Completa los conjuntos de estados de ítems desnudos de una entrada, indexados por su
+     * distancia al final de la entrada (ver IncrementalParser). Los conjuntos que ya hay en
+     * 'chart' se consideran válidos y se añaden los que faltan hasta el principio.
+     * @param input La entrada codificada
+     * @param chart Los conjuntos de las posiciones finales de la entrada (se amplía)
+     * @param spare Conjuntos vacíos para reutilizar (se consumen)
+     * @param options Los límites del análisis
+     * @return Informe del análisis de los conjuntos añadidos
+     */
+    ParseReport extendChart(final int[] input, ArrayList<StateSet<DottedItem>> chart,
+                            ArrayList<StateSet<DottedItem>> spare, ParseOptions options) {
+        final int n = input.length;
+        final int from = n - chart.size();
+        while (chart.size() <= n)
+            chart.add(spare.isEmpty() ? new StateSet<>() : spare.remove(spare.size() - 1));
+        ParseBudget budget = new ParseBudget(options, DOTTED_ITEM_BYTES);
+        ParserArena arena = ParserArena.acquire();
+        try {
+            recognizeStates(input, chart, from, true, budget, options.isLookahead(), arena);
+        } finally {
+            arena.release();
+        }
+        return budget.report();
+    }
+
+    /**
+     * Construye los conjuntos de estados de ítems desnudos, de derecha a izquierda.
+     * @param from Primera posición a calcular (los conjuntos a su derecha ya están hechos)
+     * @param relative Si es true, los conjuntos se indexan y los ítems guardan su posición
+     *                 final como distancia al final de la entrada, en lugar de como posición
+     */
+    private void recognizeStates(final int[] input, ArrayList<StateSet<DottedItem>> states, int from,
+                                 boolean relative, ParseBudget budget, boolean lookahead, ParserArena arena) {
+        final GrammarProperties props = grammar.properties();
+        final int n = input.length;
+        Queue<DottedItem> queue = arena.queue();
+
+        for (int pos = from; pos >= 0 && ! budget.stopped(); pos--) {
+            queue.clear();
+            // Índices del conjunto actual y del conjunto a su derecha
+            final int at = relative ? n - pos : pos;
+            final int right = relative ? at - 1 : pos + 1;
+            // No terminales ya predichos en la posición actual
+            BitSet predicted = arena.predicted();
+            final int leftSym = pos > 0 ? input[pos-1] : -1;
+            if (pos == n) {
+                predicted.set(grammar.start());
+                for (int it : grammar.predictions(grammar.start()))
+                    if (! lookahead || props.viable(it, leftSym))
+                        queue.add(new DottedItem(grammar, it, at));
+            } else {
+                int nextSym = input[pos];
+                if (grammar.isTerminal(nextSym))
+                    for (DottedItem item : states.get(right).waiting(nextSym))
+                        queue.add(item.advance());
+            }
+
+            StateSet<DottedItem> state = states.get(at);
+            while (! queue.isEmpty() && budget.admit(state.size(), pos)) {
+                DottedItem item = queue.remove();
+                if (state.add(item, item.finished() ? -1 : item.current())) {
+                    budget.added();
+                    if (item.finished()) {
+                        int nt = item.nonTerminal();
+                        final int end = item.start();
+                        if (end != at) // Las expansiones nulas ya se saltaron al predecir
+                            for (DottedItem prev : states.get(end).waiting(nt))
+                                queue.add(prev.advance());
+                    } else {
+                        int nt = item.current();
+                        if (grammar.isNonTerminal(nt)) {
+                            // Predice con una sola consulta al cierre precalculado
+                            if (! predicted.get(nt)) {
+                                for (int it : grammar.predictions(nt)) {
+                                    predicted.set(grammar.lhs(grammar.itemProduction(it)));
+                                    if (! lookahead || props.viable(it, leftSym))
+                                        queue.add(new DottedItem(grammar, it, at));
+                                }
+                            }
+                            // Aycock-Horspool: un símbolo anulable puede saltarse directamente
+                            if (props.isNullable(nt))
+                                queue.add(item.advance());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Analiza la entrada (con el presupuesto por defecto) e imprime sus conjuntos de estados.
+     * Útil para depurar; los conjuntos no se reutilizan.
+     * @param input La cadena de entrada
+     * @param out Destino de la salida
+     */
+    public void printStates(final ArrayList<String> input, PrintWriter out) {
+        ArrayList<StateSet<ParserStateItem>> states = new ArrayList<>();
+        for (int i = 0; i <= input.size(); i++)
+            states.add(new StateSet<>());
+        ParserArena arena = ParserArena.acquire();
+        try {
+            buildStates(input, states, new TreeFactory(),
+                        new ParseBudget(ParseOptions.defaults(), TREE_ITEM_BYTES), false, arena);
+        } finally {
+            arena.release();
+        }
+        for (int i = 0; i < states.size(); i++) {
+            out.println("State " + i + ":");
+            for (ParserStateItem item : states.get(i))
+                out.println(item.toString(grammar));
+            out.println();
+        }
     }
 }
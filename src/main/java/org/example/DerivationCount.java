@@ -0,0 +1,51 @@
+package org.example;
+
+import java.math.BigInteger;
+
+/**
+ * DerivationCount: Número de árboles de análisis de una entrada, que puede ser infinito
+ * cuando la gramática tiene derivaciones cíclicas (ver ContextFreeParser.countDerivations).
+ */
+public final class DerivationCount {
+    /** Número infinito de derivaciones */
+    public static final DerivationCount INFINITE = new DerivationCount(null);
+
+    private final BigInteger count;   // null si es infinito
+
+    private DerivationCount(BigInteger count) {
+        this.count = count;
+    }
+
+    /** @return Un número finito de derivaciones */
+    public static DerivationCount of(BigInteger count) {
+        return new DerivationCount(count);
+    }
+
+    /** @return true si hay infinitas derivaciones */
+    public boolean isInfinite() {
+        return count == null;
+    }
+
+    /**
+     * @return El número de derivaciones
+     * @throws IllegalStateException si es infinito
+     */
+    public BigInteger count() {
+        if (count == null)
+            throw new IllegalStateException("infinitely many derivations");
+        return count;
+    }
+
+    public boolean equals(Object obj) {
+        DerivationCount o = (DerivationCount)obj;
+        return o != null && (count == null ? o.count == null : count.equals(o.count));
+    }
+
+    public int hashCode() {
+        return count == null ? -1 : count.hashCode();
+    }
+
+    public String toString() {
+        return count == null ? "infinite" : count.toString();
+    }
+}
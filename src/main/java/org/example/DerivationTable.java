@@ -0,0 +1,220 @@
+package org.example;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * DerivationTable: Número de derivaciones de cada no terminal para cada longitud de frase.
+ *
+ * Para cada longitud n guarda cuántos árboles de derivación tiene cada no terminal cuya
+ * frase tiene n símbolos, y cuántas derivaciones tiene cada sufijo de cada producción (el
+ * lado derecho a partir del punto de un ítem, ver CompiledGrammar.item). Las longitudes se
+ * calculan bajo demanda y en orden creciente, de modo que cada entrada de longitud n sólo
+ * necesita las de longitudes menores y, por los símbolos anulables, algunas de la misma
+ * longitud, que se calculan recursivamente. Con longitud 0 sólo se recurre sobre los sufijos
+ * anulables (sin terminales ni no terminales no anulables), es decir, a lo largo de
+ * derivaciones unitarias, que no forman ciclos si la gramática no es cíclica.
+ *
+ * Los números son finitos si ningún no terminal alcanzable y realizable es cíclico (ver
+ * GrammarProperties.infinitelyAmbiguous); en otro caso el constructor lanza una excepción.
+ * Los no terminales no realizables tienen siempre cero derivaciones; los no alcanzables
+ * no se calculan.
+ *
+ * Los números se guardan en filas (una por longitud) de una Arithmetic: COUNT los cuenta
+ * exactamente en filas de BigInteger (SentenceGenerator) y LOG_COUNT guarda su logaritmo
+ * natural en filas de double (SentenceSampler), sin aritmética de enteros grandes ni
+ * objetos por número. La recursión es la misma para las dos: acumula cada entrada en su
+ * fila con las operaciones de la Arithmetic, sin devolver los números.
+ *
+ * La tabla crece con la longitud máxima pedida, no con el número de frases: ocupa
+ * O(longitud x ítems) números.
+ */
+final class DerivationTable<R> {
+    /** Filas de números de derivaciones y operaciones sobre sus entradas */
+    interface Arithmetic<R> {
+        /** @return Una fila de ceros */
+        R zeros(int size);
+        void setOne(R row, int i);
+        boolean isZero(R row, int i);
+        /** row[i] += src[j] */
+        void add(R row, int i, R src, int j);
+        /** row[i] += a[j] * b[k] */
+        void addProduct(R row, int i, R a, int j, R b, int k);
+    }
+
+    /** Números exactos */
+    static final Arithmetic<BigInteger[]> COUNT = new Arithmetic<BigInteger[]>() {
+        public BigInteger[] zeros(int size) {
+            BigInteger[] row = new BigInteger[size];
+            Arrays.fill(row, BigInteger.ZERO);
+            return row;
+        }
+        public void setOne(BigInteger[] row, int i) { row[i] = BigInteger.ONE; }
+        public boolean isZero(BigInteger[] row, int i) { return row[i].signum() == 0; }
+        public void add(BigInteger[] row, int i, BigInteger[] src, int j) { row[i] = row[i].add(src[j]); }
+        public void addProduct(BigInteger[] row, int i, BigInteger[] a, int j, BigInteger[] b, int k) {
+            row[i] = row[i].add(a[j].multiply(b[k]));
+        }
+    };
+
+    /** Logaritmos naturales de los números: el cero es -infinito */
+    static final Arithmetic<double[]> LOG_COUNT = new Arithmetic<double[]>() {
+        public double[] zeros(int size) {
+            double[] row = new double[size];
+            Arrays.fill(row, Double.NEGATIVE_INFINITY);
+            return row;
+        }
+        public void setOne(double[] row, int i) { row[i] = 0.0; }
+        public boolean isZero(double[] row, int i) { return row[i] == Double.NEGATIVE_INFINITY; }
+        public void add(double[] row, int i, double[] src, int j) { row[i] = logAdd(row[i], src[j]); }
+        public void addProduct(double[] row, int i, double[] a, int j, double[] b, int k) {
+            row[i] = logAdd(row[i], a[j] + b[k]);
+        }
+    };
+
+    // log(exp(a) + exp(b)), sin desbordamiento
+    private static double logAdd(double a, double b) {
+        double max = Math.max(a, b);
+        if (max == Double.NEGATIVE_INFINITY)
+            return max;
+        return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+    }
+
+    // Estado de una entrada
+    private static final byte PENDING = 1;   // Se está calculando (para detectar ciclos)
+    private static final byte DONE = 2;
+
+    private final CompiledGrammar grammar;
+    private final GrammarProperties props;
+    private final Arithmetic<R> arithmetic;
+    private final ArrayList<R> counts = new ArrayList<>(); // Por longitud y símbolo
+    private final ArrayList<R> suffixes = new ArrayList<>(); // Por longitud e ítem
+    private final ArrayList<byte[]> countState = new ArrayList<>();
+    private final ArrayList<byte[]> suffixState = new ArrayList<>();
+    private final boolean[] nullableSuffix; // Ítems cuyo sufijo puede derivar la frase vacía
+
+    /**
+     * @param grammar La gramática compilada
+     * @param arithmetic Representación de los números (COUNT o LOG_COUNT)
+     * @throws IllegalArgumentException si la gramática es infinitamente ambigua
+     */
+    DerivationTable(CompiledGrammar grammar, Arithmetic<R> arithmetic) {
+        this.grammar = grammar;
+        this.props = grammar.properties();
+        this.arithmetic = arithmetic;
+        if (props.infinitelyAmbiguous())
+            throw new IllegalArgumentException("infinitely ambiguous grammar");
+        nullableSuffix = new boolean[grammar.itemCount()];
+        for (int prod = 0; prod < grammar.productionCount(); prod++) {
+            int[] rhs = grammar.rhs(prod);
+            int item = grammar.item(prod, rhs.length);
+            nullableSuffix[item] = true;
+            for (int pos = rhs.length - 1; pos >= 0; pos--, item--)
+                nullableSuffix[item - 1] = nullableSuffix[item] && props.isNullable(rhs[pos]);
+        }
+    }
+
+    /** @return La gramática compilada */
+    CompiledGrammar grammar() {
+        return grammar;
+    }
+
+    /**
+     * Calcula la tabla hasta una longitud.
+     * @param length La longitud máxima que se va a consultar
+     */
+    void ensure(int length) {
+        while (counts.size() <= length) {
+            int n = counts.size();
+            R row = arithmetic.zeros(grammar.symbolCount());
+            if (n == 1)
+                for (int sym = grammar.nonTerminalCount(); sym < grammar.symbolCount(); sym++)
+                    arithmetic.setOne(row, sym);
+            counts.add(row);
+            countState.add(new byte[grammar.nonTerminalCount()]);
+            row = arithmetic.zeros(grammar.itemCount());
+            if (n == 0)
+                for (int prod = 0; prod < grammar.productionCount(); prod++)
+                    arithmetic.setOne(row, grammar.item(prod, grammar.rhs(prod).length));
+            suffixes.add(row);
+            suffixState.add(new byte[grammar.itemCount()]);
+            for (int nt = 0; nt < grammar.nonTerminalCount(); nt++)
+                if (! props.isUnreachable(nt))
+                    countZero(nt, n);
+        }
+    }
+
+    /**
+     * Número de derivaciones de cada símbolo (terminal o no terminal) con frases de 'n'
+     * símbolos; un terminal tiene una con n = 1. Los no terminales no alcanzables valen cero.
+     * @param n Una longitud ya calculada (ver ensure)
+     */
+    R counts(int n) {
+        return counts.get(n);
+    }
+
+    /**
+     * Número de derivaciones de la parte del lado derecho a partir del punto de cada ítem
+     * con frases de 'n' símbolos. Sólo están calculadas las entradas que pueden formar parte
+     * de una derivación desde un no terminal alcanzable; las demás valen cero, y el término
+     * counts(k)[sym] * suffixes(n-k)[item+1] de una entrada calculada es siempre correcto.
+     * @param n Una longitud ya calculada (ver ensure)
+     */
+    R suffixes(int n) {
+        return suffixes.get(n);
+    }
+
+    // Calcula, si hace falta, las derivaciones de 'sym' con 'n' símbolos; true si son cero
+    private boolean countZero(int sym, int n) {
+        if (grammar.isTerminal(sym))
+            return n != 1;
+        // Sin esta comprobación, S -> S S recurriría sobre sí mismo con longitud 0
+        if (props.isUnrealizable(sym) || (n == 0 && ! props.isNullable(sym)))
+            return true;
+        R row = counts.get(n);
+        byte[] state = countState.get(n);
+        if (state[sym] == PENDING)
+            throw new IllegalStateException("cyclic derivation of " + grammar.name(sym));
+        if (state[sym] != DONE) {
+            state[sym] = PENDING;
+            for (int prod : grammar.productions(sym)) {
+                int item = grammar.item(prod, 0);
+                if (! suffixZero(item, n))
+                    arithmetic.add(row, sym, suffixes.get(n), item);
+            }
+            state[sym] = DONE;
+        }
+        return arithmetic.isZero(row, sym);
+    }
+
+    // Calcula, si hace falta, las derivaciones del sufijo de 'item' con 'n' símbolos; true si son cero
+    private boolean suffixZero(int item, int n) {
+        int prod = grammar.itemProduction(item);
+        int pos = grammar.itemPosition(item);
+        int[] rhs = grammar.rhs(prod);
+        if (pos == rhs.length)
+            return n != 0;
+        // Sin esta comprobación, S -> S a S | ε recurriría sobre S con longitud 0
+        if (n == 0 && ! nullableSuffix[item])
+            return true;
+        R row = suffixes.get(n);
+        byte[] state = suffixState.get(n);
+        if (state[item] == PENDING)
+            throw new IllegalStateException("cyclic derivation of " + grammar.name(grammar.lhs(prod)));
+        if (state[item] != DONE) {
+            state[item] = PENDING;
+            int sym = rhs[pos];
+            for (int k = 0; k <= n; k++) {
+                // El factor de longitud n se calcula sólo si el otro no es cero: así no se
+                // entra en las recursiones por la izquierda que no pueden dar ninguna frase
+                boolean zero = k == n ? suffixZero(item + 1, 0) || countZero(sym, k)
+                                      : countZero(sym, k) || suffixZero(item + 1, n - k);
+                if (! zero)
+                    arithmetic.addProduct(row, item, counts.get(k), sym, suffixes.get(n - k), item + 1);
+            }
+            state[item] = DONE;
+        }
+        return arithmetic.isZero(row, item);
+    }
+}
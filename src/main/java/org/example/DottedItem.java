@@ -0,0 +1,133 @@
+package org.example;
+
+/**
+ * DottedItem representa un ítem de Earley "desnudo": una producción con un punto
+ * y una posición final, sin ningún árbol de análisis asociado.
+ * Al igual que ParserStateItem, el punto avanza de derecha a izquierda.
+ *
+ * Dos ítems con la misma producción, punto y posición final son iguales, de modo que
+ * cada conjunto de estados contiene a lo sumo un ítem por combinación, sin importar
+ * cuántas derivaciones distintas lo produzcan.
+ */
+public class DottedItem {
+    private final int prod;                // Producción (identificador)
+    private final int nt;                  // Símbolo no terminal del lado izquierdo
+    private final int[] rhs;               // Lado derecho de la producción
+    private final int pos;                 // Posición del punto en el lado derecho
+    private final int finish;              // Posición final en la cadena de entrada
+    private final int cachedHash;          // Valor hash pre-calculado
+
+    /**
+     * Constructor a partir de un ítem de la gramática compilada.
+     * @param grammar Gramática compilada
+     * @param item Identificador del ítem (producción y posición del punto)
+     * @param finish Posición final en la cadena de entrada
+     */
+    public DottedItem(CompiledGrammar grammar, int item, int finish) {
+        this(grammar.itemProduction(item), grammar.lhs(grammar.itemProduction(item)),
+             grammar.rhs(grammar.itemProduction(item)), grammar.itemPosition(item), finish);
+    }
+
+    private DottedItem(int prod, int nt, int[] rhs, int pos, int finish) {
+        this.prod = prod;
+        this.nt = nt;
+        this.rhs = rhs;
+        this.pos = pos;
+        this.finish = finish;
+        this.cachedHash = 13*finish + 19*pos + 23*prod;
+    }
+
+    /**
+     * Avanza el punto una posición hacia la izquierda.
+     */
+    public DottedItem advance() {
+        if (finished())
+            throw new IllegalStateException("advancing at end");
+        return new DottedItem(prod, nt, rhs, pos - 1, finish);
+    }
+
+    /**
+     * Retrocede el punto una posición hacia la derecha (operación inversa de advance).
+     */
+    public DottedItem retreat() {
+        if (pos == rhs.length)
+            throw new IllegalStateException("retreating at start");
+        return new DottedItem(prod, nt, rhs, pos + 1, finish);
+    }
+
+    /**
+     * @param finish Nueva posición final
+     * @return El mismo ítem con otra posición final (ver IncrementalParser)
+     */
+    public DottedItem moved(int finish) {
+        return new DottedItem(prod, nt, rhs, pos, finish);
+    }
+
+    public boolean equals(Object obj) {
+        DottedItem o = (DottedItem)obj;
+        return o != null && finish == o.finish && pos == o.pos && prod == o.prod;
+    }
+
+    public int hashCode() {
+        return cachedHash;
+    }
+
+    /**
+     * Genera una representación en cadena del ítem.
+     * @param grammar Gramática compilada con los nombres de los símbolos
+     */
+    public String toString(CompiledGrammar grammar) {
+        StringBuffer s = new StringBuffer();
+        s.append('(').append(grammar.name(nt)).append(" -> ");
+        for (int i = 0; i < rhs.length; i++) {
+            if (i == pos)
+                s.append('.');
+            s.append(grammar.name(rhs[i]));
+        }
+        if (pos == rhs.length)
+            s.append('.');
+        s.append(", ");
+        s.append(finish);
+        s.append(')');
+        return s.toString();
+    }
+
+    /** @return El no terminal del lado izquierdo */
+    public int nonTerminal() {
+        return nt;
+    }
+
+    /** @return El símbolo a la derecha del punto (el último reconocido) */
+    public int previous() {
+        if (pos == rhs.length)
+            throw new IllegalStateException("nothing recognised");
+        return rhs[pos];
+    }
+
+    /** @return true si el punto está al final del lado derecho (nada reconocido aún) */
+    public boolean predicted() {
+        return pos == rhs.length;
+    }
+
+    public boolean finished() {
+        return pos == 0;
+    }
+
+    public boolean finished(int nt) {
+        return pos == 0 && this.nt == nt;
+    }
+
+    public boolean match(int sym) {
+        return pos > 0 && rhs[pos-1] == sym;
+    }
+
+    public int current() {
+        if (finished())
+            throw new IllegalStateException("current at end");
+        return rhs[pos-1];
+    }
+
+    public int start() {
+        return finish;
+    }
+}
@@ -1,99 +1,264 @@
 package org.example;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * La clase Expansion se encarga de generar y expandir árboles de derivación
  * para una gramática dada, hasta un límite especificado.
+ *
+ * Tras n expansiones, las derivaciones de cada no terminal son sus árboles de altura a lo
+ * sumo n+1. Cada expansión es semi-ingenua: sólo construye los árboles nuevos, los que
+ * tienen algún hijo añadido en la expansión anterior (el "delta"). Para no generar dos veces
+ * el mismo árbol, en cada producción se elige la primera posición con un hijo del delta:
+ * a su izquierda los hijos son árboles anteriores al delta, y a su derecha cualquiera.
+ *
+ * El trabajo de cada expansión se reparte en tareas (producción, posición del delta y un
+ * tramo del delta) que se ejecutan en un ExecutorService, por defecto el ForkJoinPool común.
+ * Los árboles nuevos se añaden en un orden fijo, así que el resultado no depende del número
+ * de hilos. Como cada árbol se construye una sola vez y sus hijos son referencias a árboles
+ * ya existentes, no hace falta internarlos con una TreeFactory (que no es segura para hilos).
  */
 class Expansion {
-    private final Grammar grammar;  // La gramática a expandir
-    private final int limit;        // Límite de expansión (posiblemente en términos de nodos totales)
+    // Tareas por hilo: suficientes para repartir bien la carga sin muchas tareas
+    private static final int CHUNKS_PER_THREAD = 4;
+    // Combinaciones por debajo de las cuales no merece la pena partir el delta
+    private static final long SPLIT_WORK = 1 << 12;
 
-    // Mapa de no terminales a sus árboles de derivación
-    private Map<String, ArrayList<NonTerminalTree>> lgges;
-    private int count;       // Contador de nodos totales generados
+    private final CompiledGrammar grammar;  // La gramática a expandir
+    private final long limit;       // Límite de expansión, en nodos (altura x ancho) generados
+    private final TerminalTree[] terminals; // Árbol compartido para cada terminal
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    // Árboles de derivación de cada no terminal, indexados por identificador, en orden de
+    // creación: los de las posiciones 'previous[nt]' en adelante son el delta
+    private final ArrayList<ArrayList<NonTerminalTree>> lgges;
+    private final int[] previous;
+    private long count;     // Contador de nodos totales generados
     private int expandCount; // Número de expansiones realizadas
 
     /**
      * Constructor de Expansion.
      * Inicializa la expansión con una gramática y un límite.
      * Crea un lenguaje vacío para cada no terminal.
-     * 
+     *
      * @param grammar La gramática a expandir
      * @param limit   El límite de expansión
      */
     public Expansion(Grammar grammar, int limit) {
-        this.grammar = grammar;
+        this(grammar, limit, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Crea una expansión que reparte su trabajo en un ejecutor dado.
+     * @param grammar La gramática a expandir
+     * @param limit El límite de expansión
+     * @param executor El ejecutor donde se construyen los árboles
+     * @param parallelism Número de hilos del ejecutor, para dimensionar las tareas
+     */
+    public Expansion(Grammar grammar, int limit, ExecutorService executor, int parallelism) {
+        this.grammar = grammar.compile();
         this.limit = limit;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
 
-        count = 0;
         expandCount = 0;
-        lgges = new HashMap<>();
-        for (String nt : grammar.nonTerminals())
-            lgges.put(nt, new ArrayList<NonTerminalTree>());
+        int nts = this.grammar.nonTerminalCount();
+        terminals = new TerminalTree[this.grammar.symbolCount()];
+        for (int sym = nts; sym < terminals.length; sym++)
+            terminals[sym] = new TerminalTree(this.grammar.name(sym));
+        lgges = new ArrayList<>();
+        for (int nt = 0; nt < nts; nt++)
+            lgges.add(new ArrayList<NonTerminalTree>());
+        previous = new int[nts];
     }
 
     /**
      * Expande los árboles de derivación a la siguiente profundidad.
      * Dado un conjunto de árboles hasta la profundidad n, actualiza a árboles hasta la profundidad n+1.
-     * 
+     * Si se excede el límite, las derivaciones se quedan como estaban.
+     *
      * @return false si se excede el límite de expansión, true en caso contrario
      */
     public final boolean expand() {
-        Map<String, ArrayList<NonTerminalTree>> new_lgges = new HashMap<>();
-        for (String nt : grammar.nonTerminals()) {
-            ArrayList<NonTerminalTree> ts = new ArrayList<>();
-            for (ArrayList<String> rhs : grammar.expansions(nt)) {
-                ArrayList<ImmutableListNode<ParseTree>> strs = new ArrayList<>();
-                strs.add(null);
-                // Procesa el lado derecho de la producción de derecha a izquierda
-                for (int i = rhs.size() - 1; i >= 0; i--) {
-                    String sym = rhs.get(i);
-                    ArrayList<NonTerminalTree> exps = lgges.get(sym);
-                    if (exps == null) { // Es un terminal
-                        ParseTree t = new TerminalTree(sym);
-                        for (int j = 0; j < strs.size(); j++)
-                            strs.set(j, new ImmutableListNode<>(t, strs.get(j)));
-                    } else { // Es un no terminal
-                        ArrayList<ImmutableListNode<ParseTree>> new_strs = new ArrayList<>();
-                        for (ParseTree t : exps)
-                            for (ImmutableListNode<ParseTree> str : strs)
-                                new_strs.add(new ImmutableListNode<>(t, str));
-                        strs = new_strs;
-                    }
-                }
-                // Crea nuevos árboles no terminales y verifica el límite
-                for (ImmutableListNode<ParseTree> str : strs) {
-                    NonTerminalTree t = new NonTerminalTree(nt, ImmutableListNode.iterable(str));
-                    ts.add(t);
-                    count = count + t.height()*t.width();
-                    if (count > limit)
-                        return false;
+        // Tareas de esta expansión, en el orden en que se añadirán sus árboles
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int nt = 0; nt < grammar.nonTerminalCount(); nt++)
+            for (int prod : grammar.productions(nt))
+                plan(prod, tasks);
+
+        Step step = new Step(limit - count);
+        List<Future<ArrayList<NonTerminalTree>>> futures = new ArrayList<>();
+        for (Task task : tasks)
+            futures.add(executor.submit(() -> task.run(step)));
+        ArrayList<ArrayList<NonTerminalTree>> results = new ArrayList<>();
+        try {
+            for (Future<ArrayList<NonTerminalTree>> f : futures) {
+                ArrayList<NonTerminalTree> ts = f.get();
+                if (ts == null) { // Se excede el límite: las demás tareas ya no sirven
+                    for (Future<?> g : futures)
+                        g.cancel(true);
+                    return false;
                 }
+                results.add(ts);
             }
-            new_lgges.put(nt, ts);
+        } catch (InterruptedException e) {
+            for (Future<?> f : futures)
+                f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("expansion interrupted", e);
+        } catch (ExecutionException e) {
+            for (Future<?> f : futures)
+                f.cancel(true);
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new IllegalStateException("expansion failed", e.getCause());
         }
-        lgges = new_lgges;
+        count = count + step.nodes.get();
+        for (int nt = 0; nt < previous.length; nt++)
+            previous[nt] = lgges.get(nt).size();
+        for (int t = 0; t < tasks.size(); t++)
+            lgges.get(tasks.get(t).nt).addAll(results.get(t));
         expandCount++;
         return true;
     }
 
+    /**
+     * Planifica las tareas que construyen los árboles nuevos de una producción: una por
+     * cada posición de un no terminal que puede tomar su hijo del delta, partiendo el delta
+     * en tramos si hay muchas combinaciones.
+     */
+    private void plan(int prod, ArrayList<Task> tasks) {
+        int[] rhs = grammar.rhs(prod);
+        boolean hasNonTerminal = false;
+        for (int i = 0; i < rhs.length; i++) {
+            int sym = rhs[i];
+            if (! grammar.isNonTerminal(sym))
+                continue;
+            hasNonTerminal = true;
+            int from = previous[sym];
+            int to = lgges.get(sym).size();
+            if (from == to)
+                continue;
+            // Combinaciones de esta posición: el delta por lo que hay a los lados
+            long work = to - from;
+            for (int j = 0; j < rhs.length; j++)
+                if (j != i && grammar.isNonTerminal(rhs[j]))
+                    work = work * (j < i ? previous[rhs[j]] : lgges.get(rhs[j]).size());
+            if (work == 0)
+                continue;
+            int pieces = work < SPLIT_WORK ? 1 : Math.min(to - from, parallelism*CHUNKS_PER_THREAD);
+            int chunk = (to - from + pieces - 1) / pieces;
+            for (int lo = from; lo < to; lo += chunk)
+                tasks.add(new Task(prod, i, lo, Math.min(to, lo + chunk)));
+        }
+        // Las producciones sin no terminales sólo dan árboles en la primera expansión
+        if (! hasNonTerminal && expandCount == 0)
+            tasks.add(new Task(prod, -1, 0, 0));
+    }
+
+    /**
+     * Nodos reservados por las tareas de una expansión. Cada tarea reserva los suyos de una
+     * vez y falla si la suma pasa del presupuesto, así que la expansión falla si y sólo si
+     * sus árboles nuevos exceden el límite, sea cual sea el orden de las tareas. Los nodos
+     * sólo se suman a 'count' si la expansión tiene éxito.
+     */
+    private static final class Step {
+        final long budget;                          // Nodos que quedan hasta el límite
+        final AtomicLong nodes = new AtomicLong();  // Nodos reservados
+        volatile boolean exceeded;                  // Alguna tarea ha excedido el límite
+
+        Step(long budget) {
+            this.budget = budget;
+        }
+    }
+
+    /**
+     * Construye los árboles nuevos de una producción cuyo primer hijo del delta está en la
+     * posición 'at', tomando de ese delta sólo los árboles [lo, hi).
+     */
+    private final class Task {
+        final int prod;
+        final int nt;
+        final int at;
+        final int lo;
+        final int hi;
+
+        Task(int prod, int at, int lo, int hi) {
+            this.prod = prod;
+            this.nt = grammar.lhs(prod);
+            this.at = at;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        // Devuelve los árboles nuevos, o null si se excede el límite
+        ArrayList<NonTerminalTree> run(Step step) {
+            int[] rhs = grammar.rhs(prod);
+            ArrayList<ImmutableListNode<ParseTree>> strs = new ArrayList<>();
+            strs.add(null);
+            // Procesa el lado derecho de la producción de derecha a izquierda
+            for (int i = rhs.length - 1; i >= 0; i--) {
+                int sym = rhs[i];
+                if (grammar.isTerminal(sym)) { // Es un terminal
+                    ParseTree t = terminals[sym];
+                    for (int j = 0; j < strs.size(); j++)
+                        strs.set(j, new ImmutableListNode<>(t, strs.get(j)));
+                } else { // Es un no terminal: delta, árboles anteriores o cualquiera
+                    ArrayList<NonTerminalTree> exps = lgges.get(sym);
+                    int from = i == at ? lo : 0;
+                    int to = i == at ? hi : i < at ? previous[sym] : exps.size();
+                    ArrayList<ImmutableListNode<ParseTree>> new_strs = new ArrayList<>();
+                    for (int k = from; k < to; k++)
+                        for (ImmutableListNode<ParseTree> str : strs)
+                            new_strs.add(new ImmutableListNode<>(exps.get(k), str));
+                    strs = new_strs;
+                }
+                if (step.exceeded)
+                    return null;
+            }
+            // Crea nuevos árboles no terminales y verifica el límite
+            final String name = grammar.name(nt);
+            ArrayList<NonTerminalTree> ts = new ArrayList<>(strs.size());
+            long nodes = 0;
+            for (ImmutableListNode<ParseTree> str : strs) {
+                NonTerminalTree t = new NonTerminalTree(name, ImmutableListNode.iterable(str));
+                ts.add(t);
+                nodes = nodes + (long)t.height()*t.width();
+                if (step.exceeded || step.nodes.get() + nodes > step.budget) {
+                    step.exceeded = true;
+                    return null;
+                }
+            }
+            // Reserva y comprobación en un solo paso atómico
+            if (step.nodes.addAndGet(nodes) > step.budget) {
+                step.exceeded = true;
+                return null;
+            }
+            return ts;
+        }
+    }
+
     /**
      * Obtiene las derivaciones para un no terminal específico.
-     * 
+     *
      * @param nt El no terminal del cual se quieren obtener las derivaciones
      * @return Lista de árboles no terminales que representan las derivaciones
      */
     public ArrayList<NonTerminalTree> derivations(String nt) {
-        return lgges.get(nt);
+        int id = grammar.id(nt);
+        return grammar.isNonTerminal(id) ? lgges.get(id) : null;
     }
 
     /**
      * Obtiene la profundidad actual de la expansión.
-     * 
+     *
      * @return El número de expansiones realizadas
      */
     public final int depth() {
@@ -102,13 +267,13 @@ class Expansion {
 
     /**
      * Calcula el tamaño total de la expansión.
-     * 
+     *
      * @return La suma de los tamaños de todas las derivaciones
      */
     public final int size() {
         int n = 0;
-        for (String nt : grammar.nonTerminals())
-            n = n + derivations(nt).size();
+        for (ArrayList<NonTerminalTree> ts : lgges)
+            n = n + ts.size();
         return n;
     }
-}
\ No newline at end of file
+}
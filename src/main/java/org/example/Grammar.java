@@ -15,6 +15,8 @@ public class Grammar {
     private ArrayList<String> lhss;
     // Mapa de símbolos no terminales a sus producciones
     private Map<String, Collection<ArrayList<String>>> productions;
+    // Forma compilada, calculada bajo demanda y descartada al añadir producciones
+    private CompiledGrammar compiled;
 
     /**
      * Constructor que inicializa una gramática vacía.
@@ -39,6 +41,19 @@ public class Grammar {
         }
         prods.add(rhs);
         productions.put(lhs, prods);
+        compiled = null;
+    }
+
+    /**
+     * Obtiene la forma compilada (inmutable, con símbolos enteros) de la gramática.
+     * El resultado se guarda hasta que se añade otra producción.
+     *
+     * @return La gramática compilada
+     */
+    public CompiledGrammar compile() {
+        if (compiled == null)
+            compiled = new CompiledGrammar(this);
+        return compiled;
     }
 
     /**
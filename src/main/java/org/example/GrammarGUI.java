@@ -10,11 +10,15 @@ import java.util.*;
  * proporciona una interfaz para interactuar con el analizador de gramáticas.
  */
 public class GrammarGUI extends JFrame {
+    private static final int MAX_TREES = 100;  // Árboles mostrados como máximo
+
     private JTextArea grammarArea;    // Área para mostrar y editar la gramática
     private JTextField wordField;     // Campo para ingresar la palabra a analizar
     private JTextArea outputArea;     // Área para mostrar los resultados del análisis
     private JButton loadButton, parseButton, copyButton;  // Botones de acción
+    private JLabel statusLabel;       // Indica si la palabra pertenece al lenguaje mientras se escribe
     private Grammar grammar;          // Objeto Grammar para almacenar la gramática cargada
+    private IncrementalParser recognizer; // Reconocedor incremental de la palabra
 
     /**
      * Constructor: Inicializa y configura la interfaz gráfica.
@@ -36,8 +40,10 @@ public class GrammarGUI extends JFrame {
         wordField = new JTextField(20);
         loadButton = new JButton("Cargar gramatica");
         parseButton = new JButton("Analice");
+        statusLabel = new JLabel(" ");
         inputPanel.add(new JLabel("Palabra:"));
         inputPanel.add(wordField);
+        inputPanel.add(statusLabel);
         inputPanel.add(loadButton);
         inputPanel.add(parseButton);
         mainPanel.add(inputPanel, BorderLayout.CENTER);
@@ -58,6 +64,12 @@ public class GrammarGUI extends JFrame {
         loadButton.addActionListener(e -> loadGrammar());
         parseButton.addActionListener(e -> parseWord());
         copyButton.addActionListener(e -> copyOutput());
+        // Reconoce la palabra en cada pulsación, reutilizando el análisis anterior
+        wordField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { checkWord(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { checkWord(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { checkWord(); }
+        });
     }
 
     /**
@@ -72,6 +84,8 @@ public class GrammarGUI extends JFrame {
                 String content = new String(java.nio.file.Files.readAllBytes(selectedFile.toPath()));
                 grammarArea.setText(content);
                 grammar = parseGrammar(content);
+                recognizer = new IncrementalParser(grammar);
+                checkWord();
                 JOptionPane.showMessageDialog(this, 
                     "Gramática cargada correctamente!\n\n" +
                     "Recordatorio de formato:\n" +
@@ -118,17 +132,35 @@ public class GrammarGUI extends JFrame {
         String word = wordField.getText();
         ArrayList<String> inputSymbols = Main.symList(word);
         
-        ContextFreeParser parser = new ContextFreeParser(grammar);
+        // Los árboles salen ya en orden Ascending; sólo se construyen los que se muestran
         ArrayList<NonTerminalTree> trees = new ArrayList<>();
-        boolean full = parser.parse(inputSymbols, trees);
-        
-        Collections.sort(trees, new NonTerminalTree.Ascending());
+        boolean full = true;
+        recognizer.update(inputSymbols);
+        for (NonTerminalTree t : recognizer.forest().ranked()) {
+            if (trees.size() == MAX_TREES) {
+                full = false;
+                break;
+            }
+            trees.add(t);
+        }
+
         // Generación del HTML
         String htmlOutput = Main.generateHTMLOutput(grammar, trees, word, full);
         // Mostrar el HTML en el área de salida
         outputArea.setText(htmlOutput);
     }
 
+    /**
+     * Actualiza el indicador de pertenencia con el reconocedor incremental: tras cada
+     * edición sólo se recalculan los conjuntos de estados a la izquierda del cambio.
+     */
+    private void checkWord() {
+        if (recognizer == null)
+            return;
+        boolean member = recognizer.update(Main.symList(wordField.getText()));
+        statusLabel.setText(member ? "pertenece" : "no pertenece");
+    }
+
     /**
      * Copia el contenido del área de salida al portapapeles.
      */
@@ -6,46 +6,151 @@ import java.util.*;
  * GrammarProperties: Calcula y almacena propiedades estáticas de una gramática.
  * Esta clase analiza una gramática para determinar características como
  * símbolos no alcanzables, no realizables, anulables y cíclicos.
+ * El análisis trabaja sobre la forma compilada de la gramática (identificadores enteros);
+ * los resultados se ofrecen tanto por identificador como por nombre.
+ * Los símbolos anulables, no alcanzables y no realizables se calculan con listas de trabajo
+ * y los cíclicos con componentes fuertemente conexas, todo en tiempo lineal en el tamaño de
+ * la gramática.
+ *
+ * También calcula, para cada no terminal, los conjuntos FIRST y LAST (terminales con que
+ * pueden empezar y terminar sus cadenas) y FOLLOW y PRECEDE (terminales que pueden
+ * aparecer justo después y justo antes). Se guardan como BitSet indexados por terminal
+ * (símbolo - nonTerminalCount()). Como el analizador trabaja de derecha a izquierda,
+ * LAST es el que le permite descartar predicciones que no encajan con la entrada.
  */
 public class GrammarProperties {
-    private final Grammar grammar;
-    private final Set<String> unreachable;  // Símbolos no alcanzables
-    private final Set<String> unrealizable; // Símbolos no realizables
-    private final Set<String> nullable;     // Símbolos anulables
-    private final Set<String> cyclic;       // Símbolos cíclicos
+    private final CompiledGrammar grammar;
+    private final boolean[] unreachable;  // Símbolos no alcanzables
+    private final boolean[] unrealizable; // Símbolos no realizables
+    private final boolean[] nullable;     // Símbolos anulables
+    private final boolean[] cyclic;       // Símbolos cíclicos
+    private final BitSet[] first;         // Terminales con que empiezan las cadenas de cada no terminal
+    private final BitSet[] last;          // Terminales con que terminan
+    private final BitSet[] follow;        // Terminales que pueden seguirles
+    private final BitSet[] precede;       // Terminales que pueden precederles
+    private int[][] uses;                 // Índice inverso, sólo durante la construcción
 
     /**
      * Constructor: Calcula todas las propiedades de la gramática.
      * @param grammar La gramática a analizar
      */
     public GrammarProperties(Grammar grammar) {
+        this(grammar.compile());
+    }
+
+    /**
+     * Constructor: Calcula todas las propiedades de una gramática compilada.
+     * @param grammar La gramática compilada a analizar
+     */
+    public GrammarProperties(CompiledGrammar grammar) {
         this.grammar = grammar;
         this.unreachable = computeUnreachable();
         this.unrealizable = computeUnrealizable();
         this.nullable = computeNullable();
         this.cyclic = computeCyclic();
+        this.first = computeFirst(false);
+        this.last = computeFirst(true);
+        this.follow = computeFollow(first, false);
+        this.precede = computeFollow(last, true);
+        this.uses = null;
     }
 
     // Métodos getter para cada propiedad calculada
 
     /** @return Conjunto de no terminales no alcanzables desde el símbolo inicial */
     public Set<String> getUnreachable() {
-        return unreachable;
+        return names(unreachable);
     }
 
     /** @return Conjunto de no terminales que no generan ninguna cadena */
     public Set<String> getUnrealizable() {
-        return unrealizable;
+        return names(unrealizable);
     }
 
     /** @return Conjunto de no terminales que pueden generar la cadena vacía */
     public Set<String> getNullable() {
-        return nullable;
+        return names(nullable);
     }
 
     /** @return Conjunto de no terminales que pueden derivarse a sí mismos */
     public Set<String> getCyclic() {
-        return cyclic;
+        return names(cyclic);
+    }
+
+    /** @return Terminales con que pueden empezar las cadenas derivadas de un no terminal */
+    public Set<String> getFirst(String nonTerminal) {
+        return terminals(first, nonTerminal);
+    }
+
+    /** @return Terminales con que pueden terminar las cadenas derivadas de un no terminal */
+    public Set<String> getLast(String nonTerminal) {
+        return terminals(last, nonTerminal);
+    }
+
+    /** @return Terminales que pueden aparecer justo después de un no terminal */
+    public Set<String> getFollow(String nonTerminal) {
+        return terminals(follow, nonTerminal);
+    }
+
+    /** @return Terminales que pueden aparecer justo antes de un no terminal */
+    public Set<String> getPrecede(String nonTerminal) {
+        return terminals(precede, nonTerminal);
+    }
+
+    // Consultas por identificador de símbolo (los terminales nunca cumplen ninguna)
+
+    public boolean isUnreachable(int sym) {
+        return grammar.isNonTerminal(sym) && unreachable[sym];
+    }
+
+    public boolean isUnrealizable(int sym) {
+        return grammar.isNonTerminal(sym) && unrealizable[sym];
+    }
+
+    public boolean isNullable(int sym) {
+        return grammar.isNonTerminal(sym) && nullable[sym];
+    }
+
+    public boolean isCyclic(int sym) {
+        return grammar.isNonTerminal(sym) && cyclic[sym];
+    }
+
+    public boolean inFirst(int nt, int terminal) {
+        return grammar.isTerminal(terminal) && first[nt].get(terminal - grammar.nonTerminalCount());
+    }
+
+    public boolean inLast(int nt, int terminal) {
+        return grammar.isTerminal(terminal) && last[nt].get(terminal - grammar.nonTerminalCount());
+    }
+
+    public boolean inFollow(int nt, int terminal) {
+        return grammar.isTerminal(terminal) && follow[nt].get(terminal - grammar.nonTerminalCount());
+    }
+
+    public boolean inPrecede(int nt, int terminal) {
+        return grammar.isTerminal(terminal) && precede[nt].get(terminal - grammar.nonTerminalCount());
+    }
+
+    /**
+     * Determina si un ítem del analizador (de derecha a izquierda) puede seguir avanzando
+     * cuando el símbolo de entrada a su izquierda es 'next': la parte de la producción
+     * anterior al punto debe poder terminar en 'next', o bien ser anulable.
+     * @param item El ítem (ver CompiledGrammar.item)
+     * @param next El símbolo de entrada a la izquierda, o -1 al principio de la entrada
+     * @return false si el ítem no puede llegar a completarse en esta posición
+     */
+    public boolean viable(int item, int next) {
+        int[] rhs = grammar.rhs(grammar.itemProduction(item));
+        for (int i = grammar.itemPosition(item) - 1; i >= 0; i--) {
+            int sym = rhs[i];
+            if (grammar.isTerminal(sym))
+                return sym == next;
+            if (inLast(sym, next))
+                return true;
+            if (!nullable[sym])
+                return false;
+        }
+        return true;
     }
 
     /**
@@ -54,180 +159,400 @@ public class GrammarProperties {
      * @return true si la gramática es infinitamente ambigua, false en caso contrario
      */
     public boolean infinitelyAmbiguous() {
-        for (String nt : cyclic)
-            if (!unreachable.contains(nt) && !unrealizable.contains(nt))
+        for (int nt = 0; nt < grammar.nonTerminalCount(); nt++)
+            if (cyclic[nt] && !unreachable[nt] && !unrealizable[nt])
                 return true;
         return false;
     }
 
     /**
      * Calcula los no terminales no alcanzables desde el símbolo inicial.
-     * Utiliza un algoritmo de búsqueda en anchura (BFS).
+     * Utiliza una búsqueda en profundidad con una pila de enteros: cada producción
+     * se recorre una sola vez.
      */
-    private Set<String> computeUnreachable() {
-        Set<String> reachable = new HashSet<>();
-        Queue<String> queue = new ArrayDeque<>();
-        queue.add(grammar.getStart());
-        while (!queue.isEmpty()) {
-            String nt = queue.remove();
-            if (!reachable.contains(nt)) {
-                reachable.add(nt);
-                for (ArrayList<String> rhs : grammar.expansions(nt))
-                    for (String sym : rhs)
-                        if (grammar.expansions(sym) != null)
-                            queue.add(sym);
-            }
+    private boolean[] computeUnreachable() {
+        boolean[] reachable = new boolean[grammar.nonTerminalCount()];
+        int[] stack = new int[grammar.nonTerminalCount()];
+        int top = 0;
+        reachable[grammar.start()] = true;
+        stack[top++] = grammar.start();
+        while (top > 0) {
+            int nt = stack[--top];
+            for (int prod : grammar.productions(nt))
+                for (int sym : grammar.rhs(prod))
+                    if (grammar.isNonTerminal(sym) && !reachable[sym]) {
+                        reachable[sym] = true;
+                        stack[top++] = sym;
+                    }
         }
         return complement(reachable);
     }
 
     /**
      * Calcula los no terminales no realizables (que no generan ninguna cadena).
-     * Utiliza un algoritmo iterativo que elimina no terminales realizables.
-     */
-    private Set<String> computeUnrealizable() {
-        Set<String> unrealizable = new HashSet<>(grammar.nonTerminals());
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            for (String nt : new ArrayList<>(unrealizable)) {
-                if (isRealizable(nt, unrealizable)) {
-                    unrealizable.remove(nt);
-                    changed = true;
-                    break;
-                }
+     * Cada producción lleva la cuenta de los no terminales de su lado derecho que aún
+     * no se sabe si son realizables; cuando llega a cero, su lado izquierdo es realizable
+     * y se descuentan sus apariciones. El coste es lineal en el tamaño de la gramática.
+     */
+    private boolean[] computeUnrealizable() {
+        int[] pending = new int[grammar.productionCount()];
+        for (int prod = 0; prod < pending.length; prod++)
+            for (int sym : grammar.rhs(prod))
+                if (grammar.isNonTerminal(sym))
+                    pending[prod]++;
+        return complement(propagate(pending));
+    }
+
+    /**
+     * Calcula los no terminales anulables (que pueden generar la cadena vacía).
+     * Igual que computeUnrealizable, pero las producciones con algún terminal nunca
+     * pueden anularse y no se cuentan.
+     */
+    private boolean[] computeNullable() {
+        int[] pending = new int[grammar.productionCount()];
+        for (int prod = 0; prod < pending.length; prod++)
+            for (int sym : grammar.rhs(prod))
+                if (grammar.isNonTerminal(sym))
+                    pending[prod]++;
+                else
+                    pending[prod] = Integer.MIN_VALUE / 2; // nunca llegará a cero
+        return propagate(pending);
+    }
+
+    /**
+     * Propagación por lista de trabajo con contadores de dependencias inversas.
+     * Un no terminal se marca en cuanto una de sus producciones tiene su contador a cero;
+     * al marcarlo se decrementa el contador de cada producción en que aparece.
+     * @param pending Para cada producción, número de apariciones de no terminales aún sin
+     *                marcar (se modifica)
+     * @return Los no terminales marcados
+     */
+    private boolean[] propagate(int[] pending) {
+        final int nts = grammar.nonTerminalCount();
+        boolean[] marked = new boolean[nts];
+        int[] queue = new int[nts];
+        int head = 0, tail = 0;
+        for (int prod = 0; prod < pending.length; prod++) {
+            int lhs = grammar.lhs(prod);
+            if (pending[prod] == 0 && !marked[lhs]) {
+                marked[lhs] = true;
+                queue[tail++] = lhs;
             }
         }
-        return unrealizable;
+        int[][] uses = uses();
+        while (head < tail) {
+            int nt = queue[head++];
+            for (int prod : uses[nt])
+                if (--pending[prod] == 0) {
+                    int lhs = grammar.lhs(prod);
+                    if (!marked[lhs]) {
+                        marked[lhs] = true;
+                        queue[tail++] = lhs;
+                    }
+                }
+        }
+        return marked;
     }
 
     /**
-     * Determina si un no terminal es realizable.
+     * Índice inverso: para cada no terminal, las producciones en cuyo lado derecho
+     * aparece (repetidas tantas veces como aparezca). Se calcula una sola vez.
      */
-    private boolean isRealizable(String nt, Set<String> unrealizable) {
-        for (ArrayList<String> rhs : grammar.expansions(nt)) {
-            boolean allRealizableInRhs = true;
-            for (String sym : rhs) {
-                if (unrealizable.contains(sym)) {
-                    allRealizableInRhs = false;
-                    break;
-                }
-            }
-            if (allRealizableInRhs) return true;
+    private int[][] uses() {
+        if (uses == null) {
+            final int nts = grammar.nonTerminalCount();
+            int[] count = new int[nts];
+            for (int prod = 0; prod < grammar.productionCount(); prod++)
+                for (int sym : grammar.rhs(prod))
+                    if (grammar.isNonTerminal(sym))
+                        count[sym]++;
+            uses = new int[nts][];
+            for (int nt = 0; nt < nts; nt++)
+                uses[nt] = new int[count[nt]];
+            int[] fill = new int[nts];
+            for (int prod = 0; prod < grammar.productionCount(); prod++)
+                for (int sym : grammar.rhs(prod))
+                    if (grammar.isNonTerminal(sym))
+                        uses[sym][fill[sym]++] = prod;
         }
-        return false;
+        return uses;
     }
 
     /**
-     * Calcula los no terminales anulables (que pueden generar la cadena vacía).
-     * Utiliza un algoritmo iterativo que añade no terminales anulables.
-     */
-    private Set<String> computeNullable() {
-        Set<String> nullable = new HashSet<>();
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            for (String nt : grammar.nonTerminals()) {
-                if (!nullable.contains(nt) && isNullable(nt, nullable)) {
-                    nullable.add(nt);
-                    changed = true;
-                    break;
+     * Calcula los no terminales cíclicos (que pueden derivarse a sí mismos).
+     * Construye el grafo de derivaciones unitarias (A -> B si A deriva B sin generar ningún
+     * terminal) y busca sus componentes fuertemente conexas con el algoritmo de Tarjan.
+     * Un no terminal es cíclico si su componente tiene más de un nodo o un bucle propio.
+     * El coste es lineal en el tamaño de la gramática.
+     */
+    private boolean[] computeCyclic() {
+        final int nts = grammar.nonTerminalCount();
+        int[][] edges = computeUnitEdges();
+        boolean[] cyclic = new boolean[nts];
+
+        int[] index = new int[nts];     // Orden de descubrimiento + 1 (0 = no visitado)
+        int[] low = new int[nts];       // Menor índice alcanzable desde el subárbol
+        boolean[] onStack = new boolean[nts];
+        int[] stack = new int[nts];     // Pila de componentes de Tarjan
+        int[] path = new int[nts];      // Pila de recursión explícita
+        int[] next = new int[nts];      // Siguiente arista a explorar de cada nodo del camino
+        int top = 0, counter = 0;
+
+        for (int root = 0; root < nts; root++) {
+            if (index[root] != 0)
+                continue;
+            int depth = 0;
+            path[depth++] = root;
+            index[root] = low[root] = ++counter;
+            stack[top++] = root;
+            onStack[root] = true;
+            next[root] = 0;
+            while (depth > 0) {
+                int v = path[depth - 1];
+                if (next[v] < edges[v].length) {
+                    int w = edges[v][next[v]++];
+                    if (w == v) {
+                        cyclic[v] = true;
+                    } else if (index[w] == 0) {
+                        index[w] = low[w] = ++counter;
+                        stack[top++] = w;
+                        onStack[w] = true;
+                        next[w] = 0;
+                        path[depth++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    int parent = path[depth - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] == index[v]) {
+                    int w = stack[--top];
+                    onStack[w] = false;
+                    if (w != v) {
+                        cyclic[w] = true;
+                        do {
+                            w = stack[--top];
+                            onStack[w] = false;
+                            cyclic[w] = true;
+                        } while (w != v);
+                    }
                 }
             }
         }
-        return nullable;
+        return cyclic;
     }
 
     /**
-     * Determina si un no terminal es anulable.
+     * Calcula las aristas del grafo de derivaciones unitarias: A -> B si una producción de A
+     * tiene a B como único símbolo no anulable, o si todos sus símbolos son anulables y B es
+     * uno de ellos.
      */
-    private boolean isNullable(String nt, Set<String> nullable) {
-        for (ArrayList<String> rhs : grammar.expansions(nt)) {
-            boolean allNullableInRhs = true;
-            for (String sym : rhs) {
-                if (!nullable.contains(sym)) {
-                    allNullableInRhs = false;
-                    break;
+    private int[][] computeUnitEdges() {
+        final int nts = grammar.nonTerminalCount();
+        int[][] edges = new int[nts][];
+        int[] buffer = new int[8];
+        for (int nt = 0; nt < nts; nt++) {
+            int count = 0;
+            for (int prod : grammar.productions(nt)) {
+                int[] rhs = grammar.rhs(prod);
+                int nonNullCount = 0;
+                int nonNull = -1;
+                for (int sym : rhs)
+                    if (!isNullable(sym)) {
+                        nonNullCount++;
+                        nonNull = sym;
+                    }
+                if (nonNullCount == 0) {
+                    for (int sym : rhs) {
+                        if (count == buffer.length)
+                            buffer = Arrays.copyOf(buffer, 2 * count);
+                        buffer[count++] = sym;
+                    }
+                } else if (nonNullCount == 1 && grammar.isNonTerminal(nonNull)) {
+                    if (count == buffer.length)
+                        buffer = Arrays.copyOf(buffer, 2 * count);
+                    buffer[count++] = nonNull;
                 }
             }
-            if (allNullableInRhs) return true;
+            edges[nt] = Arrays.copyOf(buffer, count);
         }
-        return false;
+        return edges;
     }
 
     /**
-     * Calcula los no terminales cíclicos (que pueden derivarse a sí mismos).
-     * Utiliza un algoritmo de expansión trivial y cierre transitivo.
+     * Calcula los conjuntos FIRST (o LAST, recorriendo los lados derechos al revés).
+     * Cada producción aporta los terminales que encuentra hasta el primer símbolo no
+     * anulable, y una dependencia con cada no terminal recorrido; las dependencias se
+     * propagan después con una lista de trabajo.
+     * @param reverse true para calcular LAST
      */
-    private Set<String> computeCyclic() {
-        Map<String, Set<String>> trivialExpansion = computeTrivialExpansions();
-        computeTransitiveClosure(trivialExpansion);
-        return findCyclicNonTerminals(trivialExpansion);
+    private BitSet[] computeFirst(boolean reverse) {
+        final int nts = grammar.nonTerminalCount();
+        BitSet[] sets = emptySets();
+        Edges into = new Edges(nts);   // X -> A: el conjunto de X se añade al de A
+        for (int prod = 0; prod < grammar.productionCount(); prod++) {
+            int[] rhs = grammar.rhs(prod);
+            int lhs = grammar.lhs(prod);
+            for (int k = 0; k < rhs.length; k++) {
+                int sym = rhs[reverse ? rhs.length - 1 - k : k];
+                if (grammar.isTerminal(sym)) {
+                    sets[lhs].set(sym - nts);
+                    break;
+                }
+                into.add(sym, lhs);
+                if (!nullable[sym])
+                    break;
+            }
+        }
+        return propagate(sets, into.toArray());
     }
 
     /**
-     * Calcula las expansiones triviales para cada no terminal.
+     * Calcula los conjuntos FOLLOW (o PRECEDE, recorriendo los lados derechos al revés).
+     * En A -> αBβ, FOLLOW(B) contiene FIRST(β) y, si β es anulable, FOLLOW(A).
+     * @param first Los conjuntos FIRST (o LAST)
+     * @param reverse true para calcular PRECEDE
      */
-    private Map<String, Set<String>> computeTrivialExpansions() {
-        Map<String, Set<String>> trivialExpansion = new HashMap<>();
-        for (String nt : grammar.nonTerminals()) {
-            Set<String> s = new HashSet<>();
-            for (ArrayList<String> rhs : grammar.expansions(nt)) {
-                int nonNullCount = (int) rhs.stream().filter(sym -> !nullable.contains(sym)).count();
-                if (nonNullCount == 0) {
-                    s.addAll(rhs);
-                } else if (nonNullCount == 1) {
-                    rhs.stream()
-                       .filter(sym -> grammar.expansions(sym) != null && !nullable.contains(sym))
-                       .forEach(s::add);
+    private BitSet[] computeFollow(BitSet[] first, boolean reverse) {
+        final int nts = grammar.nonTerminalCount();
+        BitSet[] sets = emptySets();
+        Edges into = new Edges(nts);
+        for (int prod = 0; prod < grammar.productionCount(); prod++) {
+            int[] rhs = grammar.rhs(prod);
+            int lhs = grammar.lhs(prod);
+            for (int k = 0; k < rhs.length; k++) {
+                int b = rhs[reverse ? rhs.length - 1 - k : k];
+                if (!grammar.isNonTerminal(b))
+                    continue;
+                int j = k + 1;
+                for (; j < rhs.length; j++) {
+                    int sym = rhs[reverse ? rhs.length - 1 - j : j];
+                    if (grammar.isTerminal(sym)) {
+                        sets[b].set(sym - nts);
+                        break;
+                    }
+                    sets[b].or(first[sym]);
+                    if (!nullable[sym])
+                        break;
                 }
+                if (j == rhs.length)
+                    into.add(lhs, b);
             }
-            if (!s.isEmpty()) trivialExpansion.put(nt, s);
         }
-        return trivialExpansion;
+        return propagate(sets, into.toArray());
     }
 
     /**
-     * Calcula el cierre transitivo de las expansiones triviales.
+     * Propaga unos conjuntos a lo largo de sus dependencias hasta el punto fijo.
+     * Un no terminal vuelve a la lista de trabajo sólo cuando su conjunto crece.
+     * @param sets Los conjuntos iniciales (se modifican)
+     * @param into Para cada no terminal, los no terminales cuyo conjunto incluye al suyo
      */
-    private void computeTransitiveClosure(Map<String, Set<String>> trivialExpansion) {
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            for (Map.Entry<String, Set<String>> entry : trivialExpansion.entrySet()) {
-                Set<String> exp = entry.getValue();
-                int originalSize = exp.size();
-                for (String target : new ArrayList<>(exp)) {
-                    if (trivialExpansion.containsKey(target)) {
-                        exp.addAll(trivialExpansion.get(target));
-                    }
-                }
-                if (exp.size() > originalSize) {
-                    changed = true;
+    private BitSet[] propagate(BitSet[] sets, int[][] into) {
+        final int nts = sets.length;
+        boolean[] queued = new boolean[nts];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int nt = 0; nt < nts; nt++)
+            if (!sets[nt].isEmpty() && into[nt].length > 0) {
+                queued[nt] = true;
+                queue.add(nt);
+            }
+        while (!queue.isEmpty()) {
+            int x = queue.remove();
+            queued[x] = false;
+            for (int a : into[x]) {
+                if (a == x)
+                    continue;
+                int before = sets[a].cardinality();
+                sets[a].or(sets[x]);
+                if (sets[a].cardinality() != before && !queued[a] && into[a].length > 0) {
+                    queued[a] = true;
+                    queue.add(a);
                 }
             }
         }
+        return sets;
+    }
+
+    private BitSet[] emptySets() {
+        BitSet[] sets = new BitSet[grammar.nonTerminalCount()];
+        for (int nt = 0; nt < sets.length; nt++)
+            sets[nt] = new BitSet();
+        return sets;
     }
 
     /**
-     * Encuentra los no terminales cíclicos basados en las expansiones transitivas.
+     * Lista de aristas entre no terminales que se convierte en listas de adyacencia.
      */
-    private Set<String> findCyclicNonTerminals(Map<String, Set<String>> trivialExpansion) {
-        Set<String> cyclic = new HashSet<>();
-        for (Map.Entry<String, Set<String>> entry : trivialExpansion.entrySet()) {
-            if (entry.getValue().contains(entry.getKey())) {
-                cyclic.add(entry.getKey());
+    private static final class Edges {
+        private final int nodes;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int size;
+
+        Edges(int nodes) {
+            this.nodes = nodes;
+        }
+
+        void add(int a, int b) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, 2 * size);
+                to = Arrays.copyOf(to, 2 * size);
             }
+            from[size] = a;
+            to[size] = b;
+            size++;
+        }
+
+        int[][] toArray() {
+            int[] count = new int[nodes];
+            for (int i = 0; i < size; i++)
+                count[from[i]]++;
+            int[][] adj = new int[nodes][];
+            for (int n = 0; n < nodes; n++)
+                adj[n] = new int[count[n]];
+            int[] fill = new int[nodes];
+            for (int i = 0; i < size; i++)
+                adj[from[i]][fill[from[i]]++] = to[i];
+            return adj;
         }
-        return cyclic;
     }
 
     /**
      * Calcula el complemento de un conjunto respecto a todos los no terminales de la gramática.
      */
-    private Set<String> complement(Set<String> s) {
-        Set<String> rest = new HashSet<>(grammar.nonTerminals());
-        rest.removeAll(s);
+    private boolean[] complement(boolean[] s) {
+        boolean[] rest = new boolean[s.length];
+        for (int i = 0; i < s.length; i++)
+            rest[i] = !s[i];
         return rest;
     }
-}
\ No newline at end of file
+
+    /**
+     * Convierte un conjunto de no terminales a sus nombres, en orden de definición.
+     */
+    private Set<String> names(boolean[] s) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int nt = 0; nt < s.length; nt++)
+            if (s[nt])
+                result.add(grammar.name(nt));
+        return result;
+    }
+
+    /**
+     * Convierte el conjunto de terminales de un no terminal a sus nombres.
+     */
+    private Set<String> terminals(BitSet[] sets, String nonTerminal) {
+        int nt = grammar.id(nonTerminal);
+        if (!grammar.isNonTerminal(nt))
+            throw new IllegalArgumentException("not a non-terminal: " + nonTerminal);
+        Set<String> result = new LinkedHashSet<>();
+        for (int t = sets[nt].nextSetBit(0); t >= 0; t = sets[nt].nextSetBit(t + 1))
+            result.add(grammar.name(t + grammar.nonTerminalCount()));
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example;
+
+import java.util.ArrayList;
+
+/**
+ * HeapChart: PackedChart con un PackedStateSet en el heap por posición.
+ * Los conjuntos se toman de la ParserArena del hilo y se le devuelven al cerrar.
+ */
+final class HeapChart implements PackedChart {
+    private final ParserArena arena;
+    private final ArrayList<PackedStateSet> states;
+
+    /**
+     * @param arena Arena del análisis en curso
+     * @param n Longitud de la entrada
+     */
+    HeapChart(ParserArena arena, int n) {
+        this.arena = arena;
+        this.states = arena.packedSets(n + 1);
+    }
+
+    public PackedStateSet open(int pos) {
+        return states.get(pos);
+    }
+
+    public void seal(int pos) {
+    }
+
+    public int size(int pos) {
+        return states.get(pos).size();
+    }
+
+    public long get(int pos, int index) {
+        return states.get(pos).get(index);
+    }
+
+    public int firstWaiting(int pos, int sym) {
+        return states.get(pos).firstWaiting(sym);
+    }
+
+    public int nextWaiting(int pos, int index) {
+        return states.get(pos).nextWaiting(index);
+    }
+
+    public void close() {
+        arena.recyclePacked(states);
+    }
+}
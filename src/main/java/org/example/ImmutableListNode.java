@@ -17,6 +17,13 @@ import java.util.Iterator;
  * 1. Métodos para comparación (equals) y generación de hash code.
  * 2. Un iterador personalizado para recorrer la lista.
  * 3. Soporte para ser utilizada como Iterable.
+ *
+ * El hash code y la longitud se calculan al crear cada nodo (a partir de los del resto de
+ * la lista), y equals recorre la lista con un bucle tras descartar las listas de distinta
+ * longitud o hash: ninguna de las dos operaciones es recursiva.
+ *
+ * Las listas creadas con una TreeFactory están internadas: dos listas iguales de la misma
+ * fábrica son el mismo objeto, y equals lo aprovecha.
  * 
  * Uso típico:
  * 
@@ -26,23 +33,54 @@ import java.util.Iterator;
 public class ImmutableListNode<T> {
     public final T head; //El valor del elemnto actual
     public final ImmutableListNode<T> tail; // referencia al resto de la lista
+    private final TreeFactory factory;      // Fábrica que la internó, o null
+    private final int hash;                 // Hash code de la lista
+    private final int length;               // Número de elementos
 
     public ImmutableListNode(T head, ImmutableListNode<T> tail) {
+        this(head, tail, null);
+    }
+
+    // Lista internada por una TreeFactory
+    ImmutableListNode(T head, ImmutableListNode<T> tail, TreeFactory factory) {
         this.head = head;
         this.tail = tail;
+        this.factory = factory;
+        this.hash = head.hashCode() + 31*(tail == null ? 1 : tail.hash);
+        this.length = tail == null ? 1 : tail.length + 1;
+    }
+
+    /** @return Número de elementos de la lista */
+    public int length() {
+        return length;
     }
 
     // Metodo para comparar si dos listas son iguales
     public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
         ImmutableListNode<?> o = (ImmutableListNode<?>)obj;
-         // Compara el elemento actual y recursivamente el resto de la lista
-        return o != null && head.equals(o.head) &&
-            (tail == null ? o.tail == null : tail.equals(o.tail));
+        if (o == null || hash != o.hash || length != o.length)
+            return false;
+        // Compara elemento a elemento; como tienen la misma longitud, acaban a la vez
+        ImmutableListNode<?> a = this, b = o;
+        while (a != null) {
+            if (a == b)
+                return true;
+            // Dos listas internadas por la misma fábrica sólo son iguales si son la misma
+            if (a.factory != null && a.factory == b.factory)
+                return false;
+            if (! a.head.equals(b.head))
+                return false;
+            a = a.tail;
+            b = b.tail;
+        }
+        return true;
     }
 
-    // Genera un código hash para la lista
+    // Devuelve el código hash calculado al crear la lista
     public int hashCode() {
-        return head.hashCode() + 31*(tail == null ? 1 : tail.hashCode());
+        return hash;
     }
 
     // Clase interna para iterar sobre la lista
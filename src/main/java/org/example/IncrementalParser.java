@@ -0,0 +1,149 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * IncrementalParser: Reconocedor que conserva sus conjuntos de estados entre análisis para
+ * volver a analizar rápidamente una entrada después de editarla.
+ *
+ * El analizador trabaja de derecha a izquierda, así que el conjunto de estados de una
+ * posición sólo depende de la entrada a su derecha (y, con lookahead, del símbolo que tiene
+ * justo a su izquierda). Tras una edición, los conjuntos a la derecha de la zona editada
+ * siguen siendo válidos y sólo se calculan los demás: el coste depende de lo que hay a la
+ * izquierda del final de la edición, no de toda la entrada.
+ *
+ * Para no tener que renumerar los conjuntos reutilizados cuando la edición cambia la
+ * longitud de la entrada, se guardan indexados por su distancia al final de la entrada, y
+ * los ítems guardan también su posición final como distancia al final. forest() traduce
+ * el resultado a posiciones absolutas.
+ *
+ * Si un análisis supera el presupuesto, sus conjuntos no se reutilizan en el siguiente.
+ * Una instancia no debe usarse desde varios hilos a la vez.
+ */
+public class IncrementalParser {
+    private final CompiledGrammar grammar;
+    private final ContextFreeParser parser;
+    private final ParseOptions options;
+    private ArrayList<String> input = new ArrayList<>();
+    private int[] syms = new int[0];
+    // Conjuntos de estados, indexados por distancia al final de la entrada
+    private final ArrayList<StateSet<DottedItem>> chart = new ArrayList<>();
+    private final ArrayList<StateSet<DottedItem>> spare = new ArrayList<>();
+    private ParseReport report;
+    private int reused;                // Conjuntos reutilizados en el último análisis
+
+    public IncrementalParser(Grammar grammar) {
+        this(grammar.compile(), ParseOptions.unlimited());
+    }
+
+    /**
+     * @param grammar La gramática compilada
+     * @param options El presupuesto de cada análisis
+     */
+    public IncrementalParser(CompiledGrammar grammar, ParseOptions options) {
+        this.grammar = grammar;
+        this.parser = new ContextFreeParser(grammar);
+        this.options = options;
+    }
+
+    /**
+     * Analiza una nueva versión de la entrada. La zona editada se deduce comparando con la
+     * entrada anterior (sufijo y prefijo comunes).
+     * @param newInput La nueva entrada
+     * @return true si la nueva entrada pertenece al lenguaje
+     */
+    public boolean update(List<String> newInput) {
+        final int n = input.size(), m = newInput.size();
+        // Primero el sufijo, que es lo que se puede reutilizar
+        int suffix = 0;
+        while (suffix < n && suffix < m && input.get(n - 1 - suffix).equals(newInput.get(m - 1 - suffix)))
+            suffix++;
+        int prefix = 0;
+        while (prefix < n - suffix && prefix < m - suffix && input.get(prefix).equals(newInput.get(prefix)))
+            prefix++;
+        return edit(prefix, n - suffix, newInput.subList(prefix, m - suffix));
+    }
+
+    /**
+     * Sustituye una parte de la entrada y vuelve a analizarla.
+     * @param from Principio de la zona sustituida
+     * @param to Final (exclusivo) de la zona sustituida
+     * @param replacement Los nuevos símbolos de la zona
+     * @return true si la nueva entrada pertenece al lenguaje
+     */
+    public boolean edit(int from, int to, List<String> replacement) {
+        final int n = input.size();
+        if (from < 0 || from > to || to > n)
+            throw new IllegalArgumentException("bad edit range " + from + ".." + to + " of " + n);
+
+        // Conjuntos que la edición no afecta (por distancia al final)
+        int keep = n - to + 1;
+        if (options.isLookahead() && (from < to || ! replacement.isEmpty()))
+            keep--;
+        if (report == null || ! report.complete())
+            keep = 0;
+        keep = Math.min(keep, chart.size());
+        while (chart.size() > keep) {
+            StateSet<DottedItem> set = chart.remove(chart.size() - 1);
+            set.clear();
+            spare.add(set);
+        }
+        reused = keep;
+
+        ArrayList<String> edited = new ArrayList<>(n - (to - from) + replacement.size());
+        edited.addAll(input.subList(0, from));
+        edited.addAll(replacement);
+        edited.addAll(input.subList(to, n));
+        input = edited;
+        syms = grammar.encode(input);
+        report = parser.extendChart(syms, chart, spare, options);
+        return accepted();
+    }
+
+    /** @return true si la entrada actual pertenece al lenguaje */
+    public boolean accepted() {
+        if (chart.size() <= syms.length)
+            return false;
+        StateSet<DottedItem> first = chart.get(syms.length);
+        for (int prod : grammar.productions(grammar.start()))
+            if (first.contains(new DottedItem(grammar, grammar.item(prod, 0), 0)))
+                return true;
+        return false;
+    }
+
+    /** @return La entrada actual */
+    public List<String> input() {
+        return Collections.unmodifiableList(input);
+    }
+
+    /** @return Informe del último análisis, o null si aún no se ha analizado nada */
+    public ParseReport report() {
+        return report;
+    }
+
+    /** @return Número de conjuntos de estados reutilizados en el último análisis */
+    public int reusedSets() {
+        return reused;
+    }
+
+    /**
+     * Construye el bosque de análisis de la entrada actual a partir de los conjuntos de
+     * estados, traducidos a posiciones absolutas.
+     * @return El bosque de análisis
+     */
+    public ParseForest forest() {
+        final int n = syms.length;
+        ArrayList<StateSet<DottedItem>> states = new ArrayList<>(n + 1);
+        for (int pos = 0; pos <= n; pos++)
+            states.add(new StateSet<>());
+        for (int d = 0; d < chart.size(); d++)
+            for (DottedItem item : chart.get(d)) {
+                DottedItem abs = item.moved(n - item.start());
+                states.get(n - d).add(abs, abs.finished() ? -1 : abs.current());
+            }
+        return new ParseForest(grammar, syms, states,
+                               report != null ? report : new ParseReport(null, -1, 0, 0));
+    }
+}
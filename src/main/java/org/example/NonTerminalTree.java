@@ -17,11 +17,13 @@ public class NonTerminalTree extends ParseTree {
 
     private final String sym;                 // Símbolo no terminal
     private final Iterable<ParseTree> children; // Hijos del nodo
+    private final TreeFactory factory;          // Fábrica que lo internó, o null
 
     // Valores derivados
     private final int ht;       // Altura del subárbol
     private final int wd;       // Ancho del subárbol
-    private final String sentence; // Frase generada por este subárbol
+    private final int nd;       // Número de nodos del subárbol
+    private String sentence;    // Frase generada por este subárbol (se calcula al pedirla)
 
     /**
      * Constructor del árbol no terminal.
@@ -29,32 +31,54 @@ public class NonTerminalTree extends ParseTree {
      * @param children Hijos del nodo
      */
     public NonTerminalTree(String sym, Iterable<ParseTree> children) {
+        this(sym, children, null);
+    }
+
+    // Árbol internado por una TreeFactory
+    NonTerminalTree(String sym, Iterable<ParseTree> children, TreeFactory factory) {
         this.sym = sym;
         this.children = children;
+        this.factory = factory;
 
         // Calcula la altura y el ancho del subárbol
         int h = 1;
         int w = 0;
+        int n = 1;
         for (ParseTree t : children) {
             h = Math.max(h, t.height());
             w = w + t.width();
+            n = n + t.size();
         }
         ht = h + 1;
         wd = Math.max(1, w);
-
-        // Genera la frase representada por este subárbol
-        StringBuffer buff = new StringBuffer();
-        addSentence(buff);
-        sentence = buff.toString();
+        nd = n;
     }
 
     // Métodos para obtener las dimensiones del árbol
     public int height() { return ht; }
     public int width() { return wd; }
+    public int size() { return nd; }
 
     public String shortName() { return sym; }
     public String nonTerminal() { return sym; }
 
+    // Hijos del nodo, para TreeLayout
+    Iterable<ParseTree> children() { return children; }
+
+    /**
+     * Devuelve la frase generada por este subárbol.
+     * Se construye la primera vez que se pide, ya que la mayoría de los árboles
+     * intermedios del análisis nunca la necesitan.
+     */
+    public String sentence() {
+        if (sentence == null) {
+            StringBuffer buff = new StringBuffer();
+            addSentence(buff);
+            sentence = buff.toString();
+        }
+        return sentence;
+    }
+
     /**
      * Agrega la frase generada por este subárbol a un StringBuffer.
      */
@@ -67,8 +91,13 @@ public class NonTerminalTree extends ParseTree {
      * Compara este árbol con otro objeto.
      */
     public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
         if (obj instanceof NonTerminalTree) {
             NonTerminalTree o = (NonTerminalTree)obj;
+            // Dos árboles internados por la misma fábrica sólo son iguales si son el mismo
+            if (factory != null && factory == o.factory)
+                return false;
             return sym.equals(o.sym) && children.equals(o.children);
         }
         return false;
@@ -82,39 +111,23 @@ public class NonTerminalTree extends ParseTree {
     }
 
     /**
-     * Dibuja el subárbol en formato SVG.
+     * Dibuja el símbolo de este nodo y las líneas a sus hijos (ya dibujados).
      * @param out Objeto SVG para dibujar
-     * @param x Coordenada x inicial
-     * @param y Coordenada y inicial
-     * @param levels Niveles restantes para dibujar
-     * @return Coordenada x del centro del subárbol dibujado
+     * @param layout Disposición del árbol completo
+     * @param node Índice de este nodo en la disposición
      */
-    protected final int draw(SVG out, int x, int y, int levels) {
-        int rx;
+    protected final void draw(SVG out, TreeLayout layout, int node) {
+        final int x = layout.left(node);
+        final int y = layout.y(node);
         final int ty = y + VSEP;
-        int trx[] = new int[100];
-        int n = 0;
-        int tx = x;
-        
-        // Dibuja los hijos recursivamente
-        for (ParseTree t : children) {
-            trx[n] = t.draw(out, tx, ty, levels-1);
-            n++;
-            tx = tx + t.width()*HSEP;
-        }
-        
-        // Calcula la posición x del nodo actual
-        if (n == 0) {
-            rx = x;
-        } else {
-            // rx es la mediana de las coordenadas x de las raíces de los subárboles
-            rx = (trx[(n-1)/2] + trx[n/2])/2;
-        }
-        
+        final int rx = layout.rootX(node);
+
         // Dibuja el símbolo no terminal
         out.text(rx, y, SYMBOL_COLOUR, sym);
-        
-        if (n == 0) {
+
+        int first = layout.firstChild(node);
+        int end = layout.end(node);
+        if (first == end) {
             // Caso de nodo hoja (épsilon)
             out.text(x, ty, NULL_COLOUR, NULL_SYMBOL);
             out.startLines(NULL_COLOUR);
@@ -123,16 +136,10 @@ public class NonTerminalTree extends ParseTree {
         } else {
             // Dibuja líneas a los hijos
             out.startLines(LINE_COLOUR);
-            tx = x;
-            int i = 0;
-            for (ParseTree t : children) {
-                out.line(rx, y+BOTTOM, trx[i], ty-TOP);
-                i++;
-                tx = tx + t.width()*HSEP;
-            }
+            for (int c = first; c < end; c = layout.next(c))
+                out.line(rx, y+BOTTOM, layout.rootX(c), ty-TOP);
             out.endLines();
         }
-        return rx;
     }
 
     /**
@@ -141,6 +148,16 @@ public class NonTerminalTree extends ParseTree {
 
     public void drawSVG(PrintWriter out) {
         SVG svg = new SVG(out);
+        drawSVG(svg);
+        svg.flush();
+        out.println();
+    }
+
+    /**
+     * Dibuja el árbol completo en un SVG (que puede escribir en un Appendable o en un
+     * canal). El llamador debe llamar después a svg.flush().
+     */
+    public void drawSVG(SVG svg) {
         svg.startTag("svg");
         svg.attribute("width", width()*HSEP);
         svg.attribute("height", height()*VSEP + STRIP_HEIGHT);
@@ -162,9 +179,8 @@ public class NonTerminalTree extends ParseTree {
         svg.attribute("height", STRIP_HEIGHT);
         svg.attribute("fill", "#f0e6bc");
         svg.closeEmpty();
-        int rootX = draw(svg, HSEP/2, 30, height());
+        new TreeLayout(this, HSEP/2, 30).draw(svg);
         svg.endTag("svg");
-        out.println();
     }
 
     /**
@@ -176,10 +192,12 @@ public class NonTerminalTree extends ParseTree {
          * luego por la frase en sí, y finalmente por altura.
          */
         public final int compare(NonTerminalTree a, NonTerminalTree b) {
-            if (a.sentence.length() != b.sentence.length())
-                return a.sentence.length() - b.sentence.length();
-            if (!a.sentence.equals(b.sentence))
-                return a.sentence.compareTo(b.sentence);
+            String sa = a.sentence();
+            String sb = b.sentence();
+            if (sa.length() != sb.length())
+                return sa.length() - sb.length();
+            if (!sa.equals(sb))
+                return sa.compareTo(sb);
             return a.height() - b.height();
         }
     }
@@ -0,0 +1,174 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * OffHeapChart: PackedChart que guarda los conjuntos cerrados fuera del heap.
+ *
+ * Sólo el conjunto que se está construyendo es un PackedStateSet en el heap. Al cerrarlo,
+ * su contenido se copia en bloques de memoria directa (ByteBuffer.allocateDirect) o, para
+ * entradas muy largas, en bloques proyectados de un fichero temporal. Así el recolector de
+ * basura no tiene que recorrer los conjuntos de estados, que para entradas de cientos de
+ * miles de símbolos ocupan la mayor parte de la memoria.
+ *
+ * Cada conjunto cerrado ocupa una zona contigua de un bloque:
+ * - sus ítems (un long por ítem, en orden de inserción),
+ * - el índice del siguiente ítem que espera el mismo símbolo (un int por ítem),
+ * - una tabla de direccionamiento abierto con los símbolos esperados y el primer ítem que
+ *   espera cada uno (dos ints por casilla), recalculada con el tamaño justo.
+ *
+ * La memoria directa se libera cuando el recolector descarta los bloques; el fichero
+ * temporal se borra en close().
+ */
+final class OffHeapChart implements PackedChart {
+    private static final int MIN_BLOCK = 1 << 20;
+    private static final int MAX_BLOCK = 1 << 26;
+    private static final int NONE = -1;
+
+    private final ParserArena arena;
+    private final ArrayList<PackedStateSet> working;   // Conjunto abierto (de la arena)
+    private final ArrayList<ByteBuffer> blocks = new ArrayList<>();
+    private final int[] blockOf;      // Bloque de cada conjunto cerrado
+    private final int[] offset;       // Posición del conjunto en su bloque
+    private final int[] sizes;        // Número de ítems de cada conjunto
+    private final int[] keyMask;      // Casillas de la tabla de símbolos menos uno
+    private final FileChannel file;   // Fichero temporal, o null si se usa memoria directa
+    private long fileLength;
+    private ByteBuffer block;         // Bloque en que se está escribiendo
+    private int used;                 // Bytes usados del bloque actual
+    private int nextBlock = MIN_BLOCK;
+
+    /**
+     * @param arena Arena del análisis en curso
+     * @param n Longitud de la entrada
+     * @param scratch true para usar un fichero temporal en lugar de memoria directa
+     */
+    OffHeapChart(ParserArena arena, int n, boolean scratch) {
+        this.arena = arena;
+        this.working = arena.packedSets(1);
+        this.blockOf = new int[n + 1];
+        this.offset = new int[n + 1];
+        this.sizes = new int[n + 1];
+        this.keyMask = new int[n + 1];
+        try {
+            this.file = scratch ? FileChannel.open(Files.createTempFile("chart", ".tmp"),
+                                                   StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.DELETE_ON_CLOSE)
+                                : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public PackedStateSet open(int pos) {
+        PackedStateSet set = working.get(0);
+        set.clear();
+        return set;
+    }
+
+    public void seal(int pos) {
+        PackedStateSet set = working.get(0);
+        int size = set.size();
+        int capacity = 2;
+        while (capacity < 2*set.expectedCount())
+            capacity *= 2;
+        int keysAt = align(12*size);
+        int bytes = keysAt + 8*capacity;
+        reserve(bytes);
+
+        int base = used;
+        for (int i = 0; i < size; i++) {
+            block.putLong(base + 8*i, set.get(i));
+            block.putInt(base + 8*size + 4*i, set.nextWaiting(i));
+        }
+        int keys = base + keysAt;
+        for (int k = 0; k < capacity; k++)
+            block.putInt(keys + 8*k, NONE);
+        for (int k = 0; k < set.keyCapacity(); k++) {
+            int sym = set.keyAt(k);
+            if (sym != NONE) {
+                int slot = PackedStateSet.keySlot(sym, capacity - 1);
+                while (block.getInt(keys + 8*slot) != NONE)
+                    slot = (slot + 1) & (capacity - 1);
+                block.putInt(keys + 8*slot, sym);
+                block.putInt(keys + 8*slot + 4, set.headAt(k));
+            }
+        }
+        blockOf[pos] = blocks.size() - 1;
+        offset[pos] = base;
+        sizes[pos] = size;
+        keyMask[pos] = capacity - 1;
+        used += bytes;
+    }
+
+    public int size(int pos) {
+        return sizes[pos];
+    }
+
+    public long get(int pos, int index) {
+        return blocks.get(blockOf[pos]).getLong(offset[pos] + 8*index);
+    }
+
+    public int firstWaiting(int pos, int sym) {
+        ByteBuffer b = blocks.get(blockOf[pos]);
+        int keys = offset[pos] + align(12*sizes[pos]);
+        int mask = keyMask[pos];
+        int slot = PackedStateSet.keySlot(sym, mask);
+        for (int k = b.getInt(keys + 8*slot); k != NONE; k = b.getInt(keys + 8*slot)) {
+            if (k == sym)
+                return b.getInt(keys + 8*slot + 4);
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    public int nextWaiting(int pos, int index) {
+        return blocks.get(blockOf[pos]).getInt(offset[pos] + 8*sizes[pos] + 4*index);
+    }
+
+    public void close() {
+        blocks.clear();
+        block = null;
+        arena.recyclePacked(working);
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Redondea a múltiplo de 8 para que los long queden alineados
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    // Se asegura de que el bloque actual tenga sitio para 'bytes' más
+    private void reserve(int bytes) {
+        if (block != null && used + bytes <= block.capacity())
+            return;
+        int size = Math.max(bytes, nextBlock);
+        nextBlock = Math.min(2*nextBlock, MAX_BLOCK);
+        try {
+            if (file == null) {
+                block = ByteBuffer.allocateDirect(size);
+            } else {
+                block = file.map(FileChannel.MapMode.READ_WRITE, fileLength, size);
+                fileLength += size;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        block.order(ByteOrder.nativeOrder());
+        blocks.add(block);
+        used = 0;
+    }
+}
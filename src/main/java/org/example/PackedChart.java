@@ -0,0 +1,41 @@
+package org.example;
+
+/**
+ * PackedChart: Conjuntos de estados de ítems empaquetados de un reconocimiento.
+ *
+ * El reconocedor construye los conjuntos de derecha a izquierda: abre el conjunto de una
+ * posición con open(), lo completa, y lo cierra con seal(). A partir de ahí el conjunto no
+ * cambia y sólo se consulta por índice y por símbolo esperado, así que cada implementación
+ * puede guardarlo como le convenga:
+ * - HeapChart: un PackedStateSet por posición, reutilizados de la ParserArena.
+ * - OffHeapChart: los conjuntos cerrados se copian a memoria fuera del heap.
+ *
+ * close() libera la memoria del chart; no debe usarse después.
+ */
+interface PackedChart extends AutoCloseable {
+    /**
+     * @param pos Posición de la entrada
+     * @return Un conjunto vacío donde construir el de la posición 'pos'
+     */
+    PackedStateSet open(int pos);
+
+    /**
+     * Marca como completo el conjunto de una posición.
+     * @param pos La posición, cuyo conjunto abierto ya no se modificará
+     */
+    void seal(int pos);
+
+    /** @return Número de ítems del conjunto cerrado de una posición */
+    int size(int pos);
+
+    /** @return El ítem con el índice dado del conjunto cerrado de una posición */
+    long get(int pos, int index);
+
+    /** @return El índice del primer ítem de la posición que espera 'sym', o -1 */
+    int firstWaiting(int pos, int sym);
+
+    /** @return El índice del siguiente ítem de la posición que espera el mismo símbolo, o -1 */
+    int nextWaiting(int pos, int index);
+
+    void close();
+}
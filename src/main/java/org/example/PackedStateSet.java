@@ -0,0 +1,213 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * PackedStateSet: Conjunto de estados de Earley con los ítems empaquetados en un long.
+ *
+ * Cada ítem desnudo (ver DottedItem) se guarda como un long con el identificador del ítem
+ * de la gramática compilada (producción y punto) en los 32 bits altos y la posición final
+ * en los 32 bits bajos; ver pack(). Como los ítems de una misma producción tienen
+ * identificadores consecutivos, avanzar el punto es restar uno al identificador.
+ *
+ * Los ítems se guardan en un arreglo en orden de inserción, de modo que el propio conjunto
+ * puede recorrerse como cola de trabajo mientras crece. Una tabla hash de direccionamiento
+ * abierto con los índices de ese arreglo detecta los repetidos, y para cada símbolo esperado
+ * se encadenan (con un arreglo 'next' paralelo) los ítems que lo esperan. No se crea ningún
+ * objeto por ítem: unos 20 bytes por ítem frente a los ~80 de un DottedItem en un StateSet.
+ *
+ * Un conjunto puede vaciarse con clear() y reutilizarse, conservando sus arreglos
+ * (ver ParserArena).
+ */
+final class PackedStateSet {
+    private static final int NONE = -1;
+
+    private long[] items;       // Ítems empaquetados, en orden de inserción
+    private int[] next;         // Siguiente ítem que espera el mismo símbolo (o NONE)
+    private int size;
+    private int[] table;        // Índices de 'items' (NONE si la casilla está libre)
+    private int[] keys;         // Símbolos esperados (NONE si la casilla está libre)
+    private int[] heads;        // Primer ítem que espera cada símbolo
+    private int usedKeys;
+
+    PackedStateSet() {
+        items = new long[8];
+        next = new int[8];
+        table = new int[16];
+        Arrays.fill(table, NONE);
+        keys = new int[8];
+        Arrays.fill(keys, NONE);
+        heads = new int[8];
+    }
+
+    /**
+     * Empaqueta un ítem.
+     * @param item Identificador del ítem en la gramática compilada
+     * @param finish Posición final en la cadena de entrada
+     */
+    static long pack(int item, int finish) {
+        return ((long)item << 32) | (finish & 0xFFFFFFFFL);
+    }
+
+    /** @return El identificador del ítem empaquetado */
+    static int item(long packed) {
+        return (int)(packed >>> 32);
+    }
+
+    /** @return La posición final del ítem empaquetado */
+    static int finish(long packed) {
+        return (int)packed;
+    }
+
+    /** @return El mismo ítem con el punto una posición a la izquierda */
+    static long advance(long packed) {
+        return packed - (1L << 32);
+    }
+
+    /**
+     * Añade un ítem al conjunto.
+     * @param packed El ítem empaquetado
+     * @param expected El símbolo que el ítem espera a continuación, o -1 si está completo
+     * @return true si el ítem no estaba en el conjunto
+     */
+    boolean add(long packed, int expected) {
+        int slot = find(packed);
+        if (table[slot] != NONE)
+            return false;
+        if (size == items.length) {
+            items = Arrays.copyOf(items, 2*size);
+            next = Arrays.copyOf(next, 2*size);
+        }
+        table[slot] = size;
+        items[size] = packed;
+        next[size] = NONE;
+        if (expected >= 0) {
+            int k = findKey(expected);
+            if (keys[k] == NONE) {
+                keys[k] = expected;
+                heads[k] = size;
+                if (2*++usedKeys > keys.length)
+                    rehashKeys();
+            } else {
+                next[size] = heads[k];
+                heads[k] = size;
+            }
+        }
+        size++;
+        if (2*size > table.length)
+            rehash();
+        return true;
+    }
+
+    boolean contains(long packed) {
+        return table[find(packed)] != NONE;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** @return El ítem con el índice dado (en orden de inserción) */
+    long get(int index) {
+        return items[index];
+    }
+
+    /**
+     * @param sym Un símbolo
+     * @return El índice del primer ítem que espera 'sym', o -1 si no hay ninguno
+     */
+    int firstWaiting(int sym) {
+        int k = findKey(sym);
+        return keys[k] == NONE ? NONE : heads[k];
+    }
+
+    /**
+     * @param index Índice de un ítem que espera un símbolo
+     * @return El índice del siguiente ítem que espera el mismo símbolo, o -1
+     */
+    int nextWaiting(int index) {
+        return next[index];
+    }
+
+    /**
+     * Vacía el conjunto, conservando la capacidad reservada para reutilizarlo.
+     */
+    void clear() {
+        if (size > 0)
+            Arrays.fill(table, NONE);
+        if (usedKeys > 0)
+            Arrays.fill(keys, NONE);
+        size = 0;
+        usedKeys = 0;
+    }
+
+    // Busca la casilla de un ítem (o la casilla libre donde iría)
+    private int find(long packed) {
+        int mask = table.length - 1;
+        int h = (int)(packed ^ (packed >>> 32)) * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (table[slot] != NONE && items[table[slot]] != packed)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /** @return Número de símbolos distintos que esperan los ítems del conjunto */
+    int expectedCount() {
+        return usedKeys;
+    }
+
+    /** @return Número de casillas del índice de símbolos esperados (potencia de dos) */
+    int keyCapacity() {
+        return keys.length;
+    }
+
+    /** @return El símbolo de una casilla del índice, o -1 si está libre */
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /** @return El primer ítem que espera el símbolo de una casilla ocupada del índice */
+    int headAt(int slot) {
+        return heads[slot];
+    }
+
+    /**
+     * @param sym Un símbolo
+     * @param mask Número de casillas del índice menos uno
+     * @return La casilla en que empieza la búsqueda de 'sym' (ver OffHeapChart)
+     */
+    static int keySlot(int sym, int mask) {
+        int h = sym * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Busca la casilla de un símbolo esperado (o la casilla libre donde iría)
+    private int findKey(int sym) {
+        int mask = keys.length - 1;
+        int slot = keySlot(sym, mask);
+        while (keys[slot] != NONE && keys[slot] != sym)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void rehash() {
+        table = new int[2*table.length];
+        Arrays.fill(table, NONE);
+        for (int i = 0; i < size; i++)
+            table[find(items[i])] = i;
+    }
+
+    private void rehashKeys() {
+        int[] oldKeys = keys;
+        int[] oldHeads = heads;
+        keys = new int[2*oldKeys.length];
+        Arrays.fill(keys, NONE);
+        heads = new int[keys.length];
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != NONE) {
+                int k = findKey(oldKeys[i]);
+                keys[k] = oldKeys[i];
+                heads[k] = oldHeads[i];
+            }
+    }
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+/**
+ * ParseBudget: Contabilidad de un análisis en curso frente a sus ParseOptions.
+ * El analizador consulta admit() antes de procesar cada ítem y llama a added() por cada
+ * ítem nuevo en un conjunto de estados. El reloj sólo se consulta cada CLOCK_INTERVAL
+ * ítems para que el control sea barato.
+ */
+final class ParseBudget {
+    private static final int CLOCK_INTERVAL = 256;
+
+    private final ParseOptions options;
+    private final long memoryItems;   // Ítems que caben en la memoria estimada
+    private final long startNanos;
+    private final long deadlineNanos;
+    private long items;
+    private int sinceClock;
+    private ParseReport.Limit limit;  // Primer límite superado
+    private int position = -1;
+    private boolean stopped;          // Se superó un límite global
+
+    /**
+     * @param options Los límites a respetar
+     * @param bytesPerItem Estimación del coste en memoria de cada ítem
+     */
+    ParseBudget(ParseOptions options, long bytesPerItem) {
+        this.options = options;
+        this.memoryItems = options.getMaxMemoryBytes() / Math.max(1, bytesPerItem);
+        this.startNanos = System.nanoTime();
+        long ms = options.getMaxMillis();
+        this.deadlineNanos = ms >= Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : startNanos + ms * 1000000;
+    }
+
+    /**
+     * Comprueba si se puede procesar otro ítem en un conjunto de estados.
+     * @param setSize Tamaño actual del conjunto
+     * @param pos Posición del conjunto en la entrada
+     * @return false si hay que dejar de procesar el conjunto; stopped() indica entonces
+     *         si además hay que detener todo el análisis
+     */
+    boolean admit(int setSize, int pos) {
+        if (setSize > options.getMaxItemsPerSet())
+            return trip(ParseReport.Limit.ITEMS_PER_SET, pos, false);
+        if (items >= options.getMaxTotalItems())
+            return trip(ParseReport.Limit.TOTAL_ITEMS, pos, true);
+        if (items >= memoryItems)
+            return trip(ParseReport.Limit.MEMORY, pos, true);
+        if (deadlineNanos != Long.MAX_VALUE && ++sinceClock >= CLOCK_INTERVAL) {
+            sinceClock = 0;
+            if (System.nanoTime() - deadlineNanos > 0)
+                return trip(ParseReport.Limit.TIME, pos, true);
+        }
+        return true;
+    }
+
+    /** Registra un ítem nuevo en un conjunto de estados */
+    void added() {
+        items++;
+    }
+
+    /**
+     * Comprueba si se puede devolver otro árbol.
+     * @param trees Árboles devueltos hasta ahora
+     */
+    boolean admitTree(int trees) {
+        if (trees >= options.getMaxTrees())
+            return trip(ParseReport.Limit.TREES, 0, false);
+        return true;
+    }
+
+    /** @return true si se superó un límite que detiene todo el análisis */
+    boolean stopped() {
+        return stopped;
+    }
+
+    /** @return El informe del análisis hasta este momento */
+    ParseReport report() {
+        return new ParseReport(limit, position, items, System.nanoTime() - startNanos);
+    }
+
+    private boolean trip(ParseReport.Limit l, int pos, boolean global) {
+        if (limit == null) {
+            limit = l;
+            position = pos;
+        }
+        stopped = stopped || global;
+        return false;
+    }
+}
@@ -0,0 +1,822 @@
+package org.example;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * ParseForest: Bosque de análisis compartido y empaquetado (SPPF) construido a partir
+ * de los conjuntos de estados de ítems desnudos (DottedItem) del reconocedor.
+ *
+ * El bosque tiene dos clases de nodos:
+ * - SymbolNode (símbolo, inicio, fin): todas las derivaciones de un símbolo sobre un tramo.
+ * - ItemNode (ítem, inicio): todas las derivaciones del sufijo reconocido de una producción,
+ *   desde 'inicio' hasta la posición final del ítem.
+ *
+ * Cada ItemNode se descompone en familias empaquetadas (símbolo más a la izquierda, resto),
+ * de modo que el bosque es binarizado y su tamaño es polinómico en la longitud de la entrada,
+ * aunque el número de árboles sea exponencial. Los nodos se construyen bajo demanda y los
+ * árboles se extraen de forma perezosa mediante trees().
+ *
+ * ranked() extrae los árboles en el orden de NonTerminalTree.Ascending (de menor a mayor
+ * altura, ya que todos generan la misma frase) sin construirlos todos: enumera, para cada
+ * altura, los árboles de exactamente esa altura. Para no explorar combinaciones sin
+ * árboles, cada nodo recuerda su altura mínima y máxima y para qué alturas tiene árboles.
+ * countTrees() cuenta los árboles sin construir ninguno.
+ */
+public class ParseForest {
+    private static final int INFINITE = Integer.MAX_VALUE;
+
+    private final CompiledGrammar grammar;
+    private final int[] input;
+    private final ArrayList<StateSet<DottedItem>> states;
+    // Para cada posición, los ítems completos que empiezan allí, agrupados por no terminal
+    private final ArrayList<Map<Integer, ArrayList<DottedItem>>> completed;
+    private final Map<SymbolNode, SymbolNode> symbolNodes;
+    private final ArrayList<Map<DottedItem, ItemNode>> itemNodes;
+    private final SymbolNode root;
+    private final ParseReport report;
+    private boolean heightsComputed;
+    private List<Object> order;       // Nodos alcanzables en postorden (ver traverse)
+    private boolean cyclic;           // Hay derivaciones cíclicas alcanzables
+
+    /**
+     * Construye el bosque a partir de los conjuntos de estados de un análisis.
+     * @param grammar La gramática compilada utilizada
+     * @param input La cadena de entrada analizada, como identificadores de símbolos
+     * @param states Conjuntos de estados de ítems desnudos, uno por posición
+     * @param report Informe del reconocimiento respecto a su presupuesto
+     */
+    ParseForest(CompiledGrammar grammar, int[] input, ArrayList<StateSet<DottedItem>> states,
+                ParseReport report) {
+        this.grammar = grammar;
+        this.report = report;
+        this.input = input;
+        this.states = states;
+        this.completed = new ArrayList<>();
+        this.symbolNodes = new HashMap<>();
+        this.itemNodes = new ArrayList<>();
+        for (StateSet<DottedItem> state : states) {
+            Map<Integer, ArrayList<DottedItem>> byNt = new HashMap<>();
+            for (DottedItem item : state)
+                if (item.finished())
+                    byNt.computeIfAbsent(item.nonTerminal(), k -> new ArrayList<>()).add(item);
+            completed.add(byNt);
+            itemNodes.add(new HashMap<>());
+        }
+
+        SymbolNode top = symbol(grammar.start(), 0, input.length);
+        this.root = top.alternatives().isEmpty() ? null : top;
+    }
+
+    /** @return true si la entrada pertenece al lenguaje de la gramática */
+    public boolean accepted() {
+        return root != null;
+    }
+
+    /** @return Informe del reconocimiento: si fue completo o qué límite se superó */
+    public ParseReport report() {
+        return report;
+    }
+
+    /** @return El nodo raíz (símbolo inicial sobre toda la entrada), o null si no se aceptó */
+    public SymbolNode root() {
+        return root;
+    }
+
+    /** @return Número de nodos del bosque construidos hasta ahora */
+    public int size() {
+        int n = symbolNodes.size();
+        for (Map<DottedItem, ItemNode> m : itemNodes)
+            n = n + m.size();
+        return n;
+    }
+
+    /**
+     * Devuelve los árboles de análisis del bosque.
+     * Los árboles se construyen uno a uno a medida que se recorre el iterador. Las derivaciones
+     * cíclicas (un nodo de símbolo dentro de sí mismo) se omiten, así que el recorrido termina.
+     */
+    public Iterable<NonTerminalTree> trees() {
+        return () -> {
+            if (root == null)
+                return Collections.emptyIterator();
+            return new Enumerator(new Task(TREES, root, 0, null));
+        };
+    }
+
+    /**
+     * Devuelve los árboles de análisis de menor a mayor altura (el orden de
+     * NonTerminalTree.Ascending), construyéndolos uno a uno. Obtener los k primeros cuesta
+     * un trabajo proporcional a esos k árboles, más el de recorrer una vez el bosque.
+     * A diferencia de trees(), incluye las derivaciones cíclicas, así que si la gramática
+     * es infinitamente ambigua el recorrido no termina: hay que limitar cuántos se piden.
+     */
+    public Iterable<NonTerminalTree> ranked() {
+        return () -> {
+            if (root == null)
+                return Collections.emptyIterator();
+            computeHeights();
+            final Heights hs = root.heights;
+            return new Expanded<Integer, NonTerminalTree>(new Iterator<Integer>() {
+                    private int h = hs.min;
+
+                    public boolean hasNext() {
+                        while (h <= hs.max && ! hasExact(root, h))
+                            h++;
+                        return h <= hs.max;
+                    }
+
+                    public Integer next() {
+                        if (! hasNext())
+                            throw new NoSuchElementException();
+                        return h++;
+                    }
+                }, h -> new Enumerator(new Task(EXACT, root, h, null)));
+        };
+    }
+
+    /**
+     * Cuenta los árboles de análisis sin construirlos, por programación dinámica sobre el
+     * bosque: un nodo de símbolo tiene la suma de los de sus alternativas y un nodo de ítem
+     * la suma, para cada familia, del producto de las dos partes.
+     * @return El número de árboles; infinito si hay derivaciones cíclicas alcanzables
+     */
+    public DerivationCount countTrees() {
+        if (root == null)
+            return DerivationCount.of(BigInteger.ZERO);
+        traverse();
+        if (cyclic)
+            return DerivationCount.INFINITE;
+        Map<Object, BigInteger> counts = new IdentityHashMap<>();
+        for (Object node : order) {
+            BigInteger c = BigInteger.ZERO;
+            if (node instanceof SymbolNode) {
+                SymbolNode s = (SymbolNode)node;
+                if (s.isTerminal())
+                    c = BigInteger.ONE;
+                for (ItemNode alt : s.alternatives())
+                    c = c.add(counts.get(alt));
+            } else {
+                ItemNode n = (ItemNode)node;
+                if (n.isLeaf())
+                    c = BigInteger.ONE;
+                for (Family f : n.families())
+                    c = c.add(counts.get(f.left()).multiply(counts.get(f.right())));
+            }
+            counts.put(node, c);
+        }
+        return DerivationCount.of(counts.get(root));
+    }
+
+    /*
+     * Enumeración de árboles sin recursión.
+     *
+     * Un árbol se construye ejecutando tareas de una pila: cada tarea expande un nodo del
+     * bosque, apila las tareas de sus partes o combina valores ya construidos de otra pila
+     * (MAKE y CONS). Cuando un nodo tiene varias formas de expandirse (alternativas,
+     * familias, alturas), se guarda un punto de elección con las opciones que quedan y el
+     * estado de las dos pilas. Las pilas son listas enlazadas inmutables, así que guardar el
+     * estado cuesta O(1). Para obtener el siguiente árbol se vuelve al último punto de
+     * elección con opciones y se sigue con la siguiente; una tarea sin opciones también hace
+     * volver atrás. Las opciones se prueban en el mismo orden que recorrerían bucles
+     * anidados: el último hijo es el que cambia más deprisa.
+     */
+
+    // Clases de tareas
+    private static final int TREES = 0;          // Árboles de un nodo de símbolo, sin ciclos
+    private static final int LISTS = 1;          // Listas de hijos de un nodo de ítem, sin ciclos
+    private static final int EXACT = 2;          // Árboles de un símbolo con altura h
+    private static final int AT_MOST = 3;        // Árboles de un símbolo con altura a lo sumo h
+    private static final int EXACT_MAX = 4;      // Listas de un ítem con altura máxima h
+    private static final int LISTS_AT_MOST = 5;  // Listas de un ítem con altura máxima a lo sumo h
+    private static final int MAKE = 6;           // Construye un árbol con la lista de la cima
+    private static final int CONS = 7;           // Añade un primer hijo a la lista de la cima
+
+    private static final class Task {
+        final int kind;
+        final Object node;      // SymbolNode o ItemNode
+        final int h;            // Altura, para las tareas de ranked()
+        final Link path;        // Nodos de símbolo antepasados, para las de trees()
+
+        Task(int kind, Object node, int h, Link path) {
+            this.kind = kind;
+            this.node = node;
+            this.h = h;
+            this.path = path;
+        }
+    }
+
+    // Nodo de una pila inmutable
+    private static final class Link {
+        final Object head;
+        final Link tail;
+
+        Link(Object head, Link tail) {
+            this.head = head;
+            this.tail = tail;
+        }
+    }
+
+    // Punto de elección: opciones que quedan y estado de las pilas al llegar a él
+    private static final class Choice {
+        final List<Task[]> options;
+        int next;
+        final Link tasks;
+        final Link values;
+
+        Choice(List<Task[]> options, Link tasks, Link values) {
+            this.options = options;
+            this.next = 1;
+            this.tasks = tasks;
+            this.values = values;
+        }
+    }
+
+    private final class Enumerator implements Iterator<NonTerminalTree> {
+        private final ArrayDeque<Choice> choices = new ArrayDeque<>();
+        private Link tasks;
+        private Link values;
+        private NonTerminalTree next;
+        private boolean started;
+        private boolean exhausted;
+
+        Enumerator(Task first) {
+            tasks = new Link(first, null);
+        }
+
+        public boolean hasNext() {
+            if (next == null && ! exhausted) {
+                if ((! started || backtrack()) && run())
+                    next = (NonTerminalTree)values.head;
+                else
+                    exhausted = true;
+                started = true;
+            }
+            return next != null;
+        }
+
+        public NonTerminalTree next() {
+            if (! hasNext())
+                throw new NoSuchElementException();
+            NonTerminalTree t = next;
+            next = null;
+            return t;
+        }
+
+        // Ejecuta las tareas hasta completar un árbol (true) o agotar las opciones (false)
+        private boolean run() {
+            while (tasks != null) {
+                Task task = (Task)tasks.head;
+                tasks = tasks.tail;
+                if (! step(task) && ! backtrack())
+                    return false;
+            }
+            return true;
+        }
+
+        // Vuelve al último punto de elección con opciones y toma la siguiente
+        private boolean backtrack() {
+            Choice c = choices.peek();
+            if (c == null)
+                return false;
+            Task[] option = c.options.get(c.next++);
+            if (c.next == c.options.size())
+                choices.pop();
+            tasks = push(option, c.tasks);
+            values = c.values;
+            return true;
+        }
+
+        // Elige la primera opción y guarda las demás; false si no hay ninguna
+        private boolean choose(List<Task[]> options) {
+            if (options.isEmpty())
+                return false;
+            if (options.size() > 1)
+                choices.push(new Choice(options, tasks, values));
+            tasks = push(options.get(0), tasks);
+            return true;
+        }
+
+        private Link push(Task[] option, Link rest) {
+            for (int i = option.length - 1; i >= 0; i--)
+                rest = new Link(option[i], rest);
+            return rest;
+        }
+
+        private void value(Object v) {
+            values = new Link(v, values);
+        }
+
+        // Ejecuta una tarea; false si no tiene ninguna opción
+        @SuppressWarnings("unchecked")
+        private boolean step(Task task) {
+            List<Task[]> options = new ArrayList<>();
+            int h = task.h;
+            switch (task.kind) {
+            case TREES: {
+                SymbolNode s = (SymbolNode)task.node;
+                if (s.isTerminal()) {
+                    value(new TerminalTree(s.name()));
+                    return true;
+                }
+                for (Link p = task.path; p != null; p = p.tail)
+                    if (p.head == s)
+                        return false;
+                Link inner = new Link(s, task.path);
+                for (ItemNode alt : s.alternatives())
+                    options.add(new Task[] {new Task(LISTS, alt, 0, inner), new Task(MAKE, s, 0, null)});
+                return choose(options);
+            }
+            case LISTS: {
+                ItemNode n = (ItemNode)task.node;
+                if (n.isLeaf()) {
+                    value(null);
+                    return true;
+                }
+                for (Family f : n.families())
+                    options.add(new Task[] {new Task(TREES, f.left(), 0, task.path),
+                                            new Task(LISTS, f.right(), 0, task.path), new Task(CONS, null, 0, null)});
+                return choose(options);
+            }
+            case EXACT: {
+                SymbolNode s = (SymbolNode)task.node;
+                if (! hasExact(s, h))
+                    return false;
+                if (s.isTerminal()) {
+                    value(new TerminalTree(s.name()));
+                    return true;
+                }
+                for (ItemNode alt : s.alternatives())
+                    if (hasExactMax(alt, h - 1))
+                        options.add(new Task[] {new Task(EXACT_MAX, alt, h - 1, null), new Task(MAKE, s, 0, null)});
+                return choose(options);
+            }
+            case AT_MOST: {
+                SymbolNode s = (SymbolNode)task.node;
+                for (int k = s.heights.min; k <= Math.min(h, s.heights.max); k++)
+                    if (hasExact(s, k))
+                        options.add(new Task[] {new Task(EXACT, s, k, null)});
+                return choose(options);
+            }
+            case EXACT_MAX: {
+                // La lista vacía cuenta como altura 1, como en NonTerminalTree
+                ItemNode n = (ItemNode)task.node;
+                if (n.isLeaf()) {
+                    if (h != 1)
+                        return false;
+                    value(null);
+                    return true;
+                }
+                for (Family f : n.families()) {
+                    // El primer hijo tiene altura h y el resto a lo sumo h
+                    if (hasExact(f.left(), h) && f.right().heights.min <= h)
+                        options.add(new Task[] {new Task(EXACT, f.left(), h, null),
+                                                new Task(LISTS_AT_MOST, f.right(), h, null), new Task(CONS, null, 0, null)});
+                    // El primer hijo es más bajo y el resto alcanza la altura h
+                    if (f.left().heights.min < h && hasExactMax(f.right(), h))
+                        options.add(new Task[] {new Task(AT_MOST, f.left(), h - 1, null),
+                                                new Task(EXACT_MAX, f.right(), h, null), new Task(CONS, null, 0, null)});
+                }
+                return choose(options);
+            }
+            case LISTS_AT_MOST: {
+                ItemNode n = (ItemNode)task.node;
+                if (n.isLeaf()) {
+                    value(null);
+                    return true;
+                }
+                for (Family f : n.families())
+                    if (f.left().heights.min <= h && f.right().heights.min <= h)
+                        options.add(new Task[] {new Task(AT_MOST, f.left(), h, null),
+                                                new Task(LISTS_AT_MOST, f.right(), h, null), new Task(CONS, null, 0, null)});
+                return choose(options);
+            }
+            case MAKE: {
+                ImmutableListNode<ParseTree> l = (ImmutableListNode<ParseTree>)values.head;
+                values = values.tail;
+                value(new NonTerminalTree(((SymbolNode)task.node).name(), ImmutableListNode.iterable(l)));
+                return true;
+            }
+            default: { // CONS
+                ImmutableListNode<ParseTree> l = (ImmutableListNode<ParseTree>)values.head;
+                ParseTree t = (ParseTree)values.tail.head;
+                values = values.tail.tail;
+                value(new ImmutableListNode<>(t, l));
+                return true;
+            }
+            }
+        }
+    }
+
+    // Determina (con memoria) si un nodo de símbolo tiene árboles de altura exactamente h
+    private boolean hasExact(SymbolNode s, int h) {
+        int r = known(s, h);
+        if (r < 0)
+            evaluate(s, h);
+        return r > 0 || (r < 0 && s.heights.exact.get(h));
+    }
+
+    // Determina (con memoria) si un nodo de ítem tiene listas de hijos de altura máxima h
+    private boolean hasExactMax(ItemNode n, int h) {
+        int r = known(n, h);
+        if (r < 0)
+            evaluate(n, h);
+        return r > 0 || (r < 0 && n.heights.exact.get(h));
+    }
+
+    // 1 o 0 si ya se sabe si un nodo tiene árboles (o listas) de altura h; -1 si no
+    private int known(Object node, int h) {
+        Heights hs = heights(node);
+        if (h < hs.min || h > hs.max)
+            return 0;
+        if (node instanceof SymbolNode ? ((SymbolNode)node).isTerminal() : ((ItemNode)node).isLeaf())
+            return h == 1 ? 1 : 0;
+        if (! hs.known.get(h))
+            return -1;
+        return hs.exact.get(h) ? 1 : 0;
+    }
+
+    /**
+     * Calcula hasExact (para un SymbolNode) o hasExactMax (para un ItemNode) con una pila
+     * explícita. Un nodo de símbolo con altura h depende de sus alternativas con h-1 y un
+     * nodo de ítem con h, de sus dos partes con h; como todo ciclo del bosque pasa por un
+     * nodo de símbolo, las dependencias no tienen ciclos y cada consulta termina.
+     */
+    private void evaluate(Object start, int height) {
+        ArrayDeque<Object> nodes = new ArrayDeque<>();
+        ArrayDeque<int[]> state = new ArrayDeque<>(); // {altura, siguiente dependencia}
+        nodes.push(start);
+        state.push(new int[] {height, 0});
+        while (! nodes.isEmpty()) {
+            Object node = nodes.peek();
+            int[] st = state.peek();
+            int h = st[0];
+            Object pending = null;
+            int pendingHeight = 0;
+            boolean found = false;
+            if (node instanceof SymbolNode) {
+                List<ItemNode> alts = ((SymbolNode)node).alternatives();
+                for (; st[1] < alts.size() && ! found; st[1]++) {
+                    int r = known(alts.get(st[1]), h - 1);
+                    if (r < 0) {
+                        pending = alts.get(st[1]);
+                        pendingHeight = h - 1;
+                        break;
+                    }
+                    found = r > 0;
+                }
+            } else {
+                // Dos condiciones por familia (ver EXACT_MAX en Enumerator)
+                List<Family> fams = ((ItemNode)node).families();
+                for (; st[1] < 2*fams.size() && ! found; st[1]++) {
+                    Family f = fams.get(st[1]/2);
+                    Object dep;
+                    if (st[1] % 2 == 0) {
+                        if (f.right().heights.min > h)
+                            continue;
+                        dep = f.left();
+                    } else {
+                        if (f.left().heights.min >= h)
+                            continue;
+                        dep = f.right();
+                    }
+                    int r = known(dep, h);
+                    if (r < 0) {
+                        pending = dep;
+                        pendingHeight = h;
+                        break;
+                    }
+                    found = r > 0;
+                }
+            }
+            if (pending != null) {
+                nodes.push(pending);
+                state.push(new int[] {pendingHeight, 0});
+                continue;
+            }
+            nodes.pop();
+            state.pop();
+            Heights hs = heights(node);
+            hs.known.set(h);
+            hs.exact.set(h, found);
+        }
+    }
+
+    /**
+     * Recorre en profundidad los nodos alcanzables desde la raíz, los guarda en postorden
+     * (cada nodo después de sus hijos) y detecta si hay ciclos.
+     */
+    private void traverse() {
+        if (order != null)
+            return;
+        order = new ArrayList<>();
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        ArrayDeque<Iterator<Object>> pending = new ArrayDeque<>();
+        root.heights = new Heights();
+        stack.push(root);
+        pending.push(children(root).iterator());
+        while (! stack.isEmpty()) {
+            Iterator<Object> it = pending.peek();
+            if (it.hasNext()) {
+                Object child = it.next();
+                Heights hs = heights(child);
+                if (hs == null) {
+                    if (child instanceof SymbolNode)
+                        ((SymbolNode)child).heights = new Heights();
+                    else
+                        ((ItemNode)child).heights = new Heights();
+                    stack.push(child);
+                    pending.push(children(child).iterator());
+                } else if (! hs.done) {
+                    cyclic = true;
+                }
+            } else {
+                pending.pop();
+                Object node = stack.pop();
+                heights(node).done = true;
+                order.add(node);
+            }
+        }
+    }
+
+    /**
+     * Calcula las alturas mínima y máxima de los nodos alcanzables desde la raíz.
+     * Sin ciclos basta una pasada en postorden; con ciclos la altura máxima no está acotada
+     * y la mínima se obtiene repitiendo la pasada hasta el punto fijo.
+     */
+    private void computeHeights() {
+        if (heightsComputed)
+            return;
+        heightsComputed = true;
+        traverse();
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Object node : order)
+                changed = relax(node, ! cyclic) || changed;
+            if (! cyclic)
+                break;
+        }
+        if (cyclic)
+            for (Object node : order)
+                heights(node).max = INFINITE;
+    }
+
+    // Hijos de un nodo en el bosque: alternativas o partes de las familias
+    private List<Object> children(Object node) {
+        List<Object> result = new ArrayList<>();
+        if (node instanceof SymbolNode) {
+            result.addAll(((SymbolNode)node).alternatives());
+        } else {
+            for (Family f : ((ItemNode)node).families()) {
+                result.add(f.left());
+                result.add(f.right());
+            }
+        }
+        return result;
+    }
+
+    private Heights heights(Object node) {
+        return node instanceof SymbolNode ? ((SymbolNode)node).heights : ((ItemNode)node).heights;
+    }
+
+    // Recalcula las alturas de un nodo a partir de las de sus hijos
+    private boolean relax(Object node, boolean withMax) {
+        Heights hs = heights(node);
+        int min = INFINITE, max = 0;
+        if (node instanceof SymbolNode) {
+            SymbolNode s = (SymbolNode)node;
+            if (s.isTerminal())
+                min = max = 1;
+            for (ItemNode alt : s.alternatives())
+                if (alt.heights.min != INFINITE) {
+                    min = Math.min(min, alt.heights.min + 1);
+                    max = Math.max(max, alt.heights.max + 1);
+                }
+        } else {
+            ItemNode n = (ItemNode)node;
+            if (n.isLeaf())
+                min = max = 1;
+            for (Family f : n.families())
+                if (f.left().heights.min != INFINITE && f.right().heights.min != INFINITE) {
+                    min = Math.min(min, Math.max(f.left().heights.min, f.right().heights.min));
+                    max = Math.max(max, Math.max(f.left().heights.max, f.right().heights.max));
+                }
+        }
+        if (withMax)
+            hs.max = max;
+        if (min < hs.min) {
+            hs.min = min;
+            return true;
+        }
+        return false;
+    }
+
+    // Obtiene (o crea) el nodo de símbolo para un tramo
+    private SymbolNode symbol(int sym, int start, int end) {
+        SymbolNode probe = new SymbolNode(sym, start, end);
+        SymbolNode node = symbolNodes.get(probe);
+        if (node == null) {
+            node = probe;
+            symbolNodes.put(node, node);
+        }
+        return node;
+    }
+
+    // Obtiene (o crea) el nodo de ítem para un ítem que empieza en 'start'
+    private ItemNode item(DottedItem item, int start) {
+        Map<DottedItem, ItemNode> nodes = itemNodes.get(start);
+        ItemNode node = nodes.get(item);
+        if (node == null) {
+            node = new ItemNode(item, start);
+            nodes.put(item, node);
+        }
+        return node;
+    }
+
+    private List<ItemNode> computeAlternatives(SymbolNode s) {
+        List<ItemNode> alts = new ArrayList<>();
+        if (s.isTerminal())
+            return alts;
+        ArrayList<DottedItem> items = completed.get(s.start()).get(s.symbol());
+        if (items != null)
+            for (DottedItem item : items)
+                if (item.start() == s.end())
+                    alts.add(item(item, s.start()));
+        return alts;
+    }
+
+    private List<Family> computeFamilies(ItemNode n) {
+        List<Family> fams = new ArrayList<>();
+        DottedItem item = n.item();
+        if (item.predicted())
+            return fams;
+        // El símbolo más a la izquierda reconocido cubre [k, m); el resto cubre [m, fin)
+        final int sym = item.previous();
+        final DottedItem rest = item.retreat();
+        final int k = n.start();
+        if (grammar.isTerminal(sym)) {
+            if (k < input.length && input[k] == sym && states.get(k+1).contains(rest))
+                fams.add(new Family(symbol(sym, k, k+1), item(rest, k+1)));
+        } else {
+            ArrayList<DottedItem> items = completed.get(k).get(sym);
+            if (items != null) {
+                Set<Integer> seen = new HashSet<>();
+                for (DottedItem c : items) {
+                    int m = c.start();
+                    if (seen.add(m) && states.get(m).contains(rest))
+                        fams.add(new Family(symbol(sym, k, m), item(rest, m)));
+                }
+            }
+        }
+        return fams;
+    }
+
+    /**
+     * Nodo de símbolo: agrupa todas las derivaciones de un símbolo sobre [start, end).
+     */
+    public class SymbolNode {
+        private final int sym;
+        private final int start;
+        private final int end;
+        private List<ItemNode> alternatives;
+        private Heights heights;
+
+        private SymbolNode(int sym, int start, int end) {
+            this.sym = sym;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int symbol() { return sym; }
+        public String name() { return grammar.name(sym); }
+        public int start() { return start; }
+        public int end() { return end; }
+
+        public boolean isTerminal() {
+            return grammar.isTerminal(sym);
+        }
+
+        /** @return Un nodo de ítem completo por cada producción que deriva el tramo */
+        public List<ItemNode> alternatives() {
+            if (alternatives == null)
+                alternatives = computeAlternatives(this);
+            return alternatives;
+        }
+
+        public boolean equals(Object obj) {
+            SymbolNode o = (SymbolNode)obj;
+            return o != null && start == o.start && end == o.end && sym == o.sym;
+        }
+
+        public int hashCode() {
+            return 13*start + 19*end + 23*sym;
+        }
+
+        public String toString() {
+            return "(" + name() + ", " + start + ", " + end + ")";
+        }
+    }
+
+    /**
+     * Nodo de ítem: agrupa las derivaciones de la parte reconocida de un ítem sobre
+     * [start, item.start()).
+     */
+    public class ItemNode {
+        private final DottedItem item;
+        private final int start;
+        private List<Family> families;
+        private Heights heights;
+
+        private ItemNode(DottedItem item, int start) {
+            this.item = item;
+            this.start = start;
+        }
+
+        public DottedItem item() { return item; }
+        public int start() { return start; }
+        public int end() { return item.start(); }
+
+        /** @return true si no se ha reconocido ningún símbolo (lista vacía de hijos) */
+        public boolean isLeaf() {
+            return item.predicted();
+        }
+
+        /** @return Las familias empaquetadas en que se descompone este nodo */
+        public List<Family> families() {
+            if (families == null)
+                families = computeFamilies(this);
+            return families;
+        }
+
+        public String toString() {
+            return item.toString(grammar) + "@" + start;
+        }
+    }
+
+    /**
+     * Familia empaquetada: el primer símbolo reconocido de un ítem y el nodo con el resto.
+     */
+    public static class Family {
+        private final SymbolNode left;
+        private final ItemNode right;
+
+        private Family(SymbolNode left, ItemNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public SymbolNode left() { return left; }
+        public ItemNode right() { return right; }
+    }
+
+    // Alturas de los árboles de un nodo, para ranked()
+    private static class Heights {
+        int min = INFINITE;            // Altura mínima (INFINITE si no tiene árboles)
+        int max = 0;                   // Altura máxima (INFINITE si no está acotada)
+        boolean done;                  // Ya recorrido (ver traverse)
+        final BitSet known = new BitSet();  // Alturas ya consultadas
+        final BitSet exact = new BitSet();  // Alturas con algún árbol
+    }
+
+    // Iterador que concatena los iteradores obtenidos de cada elemento de otro iterador
+    private static class Expanded<A, B> implements Iterator<B> {
+        private final Iterator<A> source;
+        private final Function<A, Iterator<B>> f;
+        private Iterator<B> current;
+
+        Expanded(Iterator<A> source, Function<A, Iterator<B>> f) {
+            this.source = source;
+            this.f = f;
+            this.current = Collections.emptyIterator();
+        }
+
+        public boolean hasNext() {
+            while (! current.hasNext()) {
+                if (! source.hasNext())
+                    return false;
+                current = f.apply(source.next());
+            }
+            return true;
+        }
+
+        public B next() {
+            if (! hasNext())
+                throw new NoSuchElementException();
+            return current.next();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+/**
+ * ParseOptions: Presupuesto de un análisis sintáctico.
+ *
+ * Define los límites que el analizador respeta al construir los conjuntos de estados:
+ * - Ítems por conjunto de estados: al superarlo se trunca ese conjunto y el análisis
+ *   continúa (así se evitan las expansiones infinitas de las gramáticas cíclicas).
+ * - Ítems totales, tiempo y memoria estimada: al superarlos se detiene el análisis.
+ * - Árboles: número máximo de árboles devueltos.
+ *
+ * Cuando un límite se supera, el ParseReport del análisis indica cuál fue y en qué posición.
+ *
+ * Además, con lookahead el analizador no predice las alternativas que no pueden encajar
+ * con el símbolo de entrada contiguo (según los conjuntos LAST de GrammarProperties).
+ * No cambia el resultado, pero los conjuntos de estados son mucho más pequeños y por tanto
+ * los límites de ítems se alcanzan más tarde. Está desactivado por defecto.
+ * El almacenamiento de los conjuntos de estados (ChartStorage) sólo lo usa recognize:
+ * con OFF_HEAP los conjuntos ya terminados se copian fuera del heap, en memoria directa o,
+ * si la entrada tiene más símbolos que el umbral de fichero temporal, en un fichero
+ * proyectado en memoria. El resultado es el mismo; sólo cambia dónde vive la memoria.
+ *
+ * Los métodos set devuelven el propio objeto para poder encadenarlos.
+ */
+public class ParseOptions {
+    /**
+     * Dónde guarda recognize los conjuntos de estados.
+     */
+    public enum ChartStorage {
+        HEAP,       // Arreglos en el heap, reutilizados entre análisis del mismo hilo
+        OFF_HEAP    // Memoria directa, o un fichero temporal proyectado para entradas largas
+    }
+
+    private int maxItemsPerSet = Integer.MAX_VALUE;
+    private long maxTotalItems = Long.MAX_VALUE;
+    private long maxMillis = Long.MAX_VALUE;
+    private long maxMemoryBytes = Long.MAX_VALUE;
+    private int maxTrees = Integer.MAX_VALUE;
+    private boolean lookahead = false;
+    private ChartStorage chartStorage = ChartStorage.HEAP;
+    private int scratchThreshold = Integer.MAX_VALUE;
+
+    /**
+     * @return Opciones sin ningún límite
+     */
+    public static ParseOptions unlimited() {
+        return new ParseOptions();
+    }
+
+    /**
+     * Opciones usadas por ContextFreeParser.parse(input, results): a lo sumo 100 ítems por
+     * conjunto de estados, el límite histórico del analizador, y ningún otro límite.
+     * @return Opciones por defecto
+     */
+    public static ParseOptions defaults() {
+        return new ParseOptions().setMaxItemsPerSet(100);
+    }
+
+    public int getMaxItemsPerSet() { return maxItemsPerSet; }
+    public long getMaxTotalItems() { return maxTotalItems; }
+    public long getMaxMillis() { return maxMillis; }
+    public long getMaxMemoryBytes() { return maxMemoryBytes; }
+    public int getMaxTrees() { return maxTrees; }
+    public boolean isLookahead() { return lookahead; }
+    public ChartStorage getChartStorage() { return chartStorage; }
+    public int getScratchThreshold() { return scratchThreshold; }
+
+    /** @param n Número máximo de ítems en un conjunto de estados */
+    public ParseOptions setMaxItemsPerSet(int n) {
+        maxItemsPerSet = n;
+        return this;
+    }
+
+    /** @param n Número máximo de ítems en todos los conjuntos de estados */
+    public ParseOptions setMaxTotalItems(long n) {
+        maxTotalItems = n;
+        return this;
+    }
+
+    /** @param ms Tiempo máximo de análisis, en milisegundos */
+    public ParseOptions setMaxMillis(long ms) {
+        maxMillis = ms;
+        return this;
+    }
+
+    /** @param bytes Memoria máxima estimada para los conjuntos de estados, en bytes */
+    public ParseOptions setMaxMemoryBytes(long bytes) {
+        maxMemoryBytes = bytes;
+        return this;
+    }
+
+    /** @param n Número máximo de árboles de análisis devueltos */
+    public ParseOptions setMaxTrees(int n) {
+        maxTrees = n;
+        return this;
+    }
+
+    /** @param on true para descartar las predicciones que no encajan con la entrada */
+    public ParseOptions setLookahead(boolean on) {
+        lookahead = on;
+        return this;
+    }
+
+    /** @param storage Dónde guarda recognize los conjuntos de estados */
+    public ParseOptions setChartStorage(ChartStorage storage) {
+        chartStorage = storage;
+        return this;
+    }
+
+    /**
+     * @param n Con OFF_HEAP, las entradas de más de 'n' símbolos guardan los conjuntos
+     *          de estados en un fichero temporal proyectado en memoria
+     */
+    public ParseOptions setScratchThreshold(int n) {
+        scratchThreshold = n;
+        return this;
+    }
+}
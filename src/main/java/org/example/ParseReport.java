@@ -0,0 +1,62 @@
+package org.example;
+
+/**
+ * ParseReport: Resultado de un análisis respecto a su presupuesto (ParseOptions).
+ * Indica si el análisis fue completo y, si no, qué límite se superó primero y en qué
+ * posición de la entrada.
+ */
+public final class ParseReport {
+    /**
+     * Límites que pueden interrumpir un análisis.
+     */
+    public enum Limit {
+        ITEMS_PER_SET,  // Un conjunto de estados se truncó
+        TOTAL_ITEMS,    // Se alcanzó el total de ítems
+        TIME,           // Se agotó el tiempo
+        MEMORY,         // Se alcanzó la memoria estimada
+        TREES           // Se alcanzó el número de árboles
+    }
+
+    private final Limit limit;        // Límite superado, o null
+    private final int position;       // Posición en que se superó, o -1
+    private final long items;         // Ítems añadidos a los conjuntos de estados
+    private final long elapsedNanos;  // Duración del análisis
+
+    ParseReport(Limit limit, int position, long items, long elapsedNanos) {
+        this.limit = limit;
+        this.position = position;
+        this.items = items;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /** @return true si no se superó ningún límite */
+    public boolean complete() {
+        return limit == null;
+    }
+
+    /** @return El primer límite superado, o null si el análisis fue completo */
+    public Limit limit() {
+        return limit;
+    }
+
+    /** @return La posición de la entrada en que se superó el límite, o -1 */
+    public int position() {
+        return position;
+    }
+
+    /** @return Número de ítems añadidos a los conjuntos de estados */
+    public long items() {
+        return items;
+    }
+
+    /** @return Duración del análisis en nanosegundos */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public String toString() {
+        if (limit == null)
+            return "complete (" + items + " items)";
+        return limit + " exceeded at position " + position + " (" + items + " items)";
+    }
+}
@@ -25,6 +25,12 @@ public abstract class ParseTree {
      */
     public abstract int width();
 
+    /**
+     * Devuelve el número de nodos del árbol.
+     * @return Número de nodos, contando cada aparición de un subárbol compartido
+     */
+    public abstract int size();
+
     /**
      * Devuelve una representación corta del nombre del nodo.
      * @return Nombre corto o símbolo del nodo
@@ -39,12 +45,11 @@ public abstract class ParseTree {
     protected abstract void addSentence(StringBuffer s);
 
     /**
-     * Dibuja el subárbol en un objeto SVG.
+     * Dibuja este nodo en un objeto SVG, en la posición calculada por una TreeLayout.
+     * Los hijos no se dibujan: TreeLayout dibuja cada nodo por separado, después de sus hijos.
      * @param out Objeto SVG en el que se dibuja
-     * @param x Coordenada x inicial para el dibujo
-     * @param y Coordenada y inicial para el dibujo
-     * @param levels Número de niveles restantes para dibujar
-     * @return La coordenada x del centro del subárbol dibujado
+     * @param layout Disposición del árbol completo
+     * @param node Índice de este nodo en la disposición
      */
-    protected abstract int draw(SVG out, int x, int y, int levels);
+    protected abstract void draw(SVG out, TreeLayout layout, int node);
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Queue;
+
+/**
+ * ParserArena: Almacenamiento reutilizable para los análisis de un mismo hilo.
+ *
+ * Guarda la cola de trabajo, el conjunto de no terminales predichos y una reserva de
+ * conjuntos de estados (StateSet y PackedStateSet) ya vaciados. Cada hilo tiene su propia arena, de modo
+ * que un mismo analizador puede usarse desde varios hilos sin sincronización y sin volver
+ * a reservar estas estructuras en cada análisis.
+ *
+ * La reserva está acotada en número de conjuntos y en su tamaño: clear() conserva la
+ * capacidad de un conjunto, así que los que han crecido mucho (en un análisis largo o muy
+ * ambiguo) no se guardan, para que cada hilo no retenga su memoria indefinidamente.
+ *
+ * Uso: acquire() al empezar un análisis y release() al terminar (en un bloque finally).
+ * Si la arena del hilo ya está en uso (análisis anidados), acquire() devuelve una nueva.
+ */
+final class ParserArena {
+    // Máximo de conjuntos de estados que se conservan entre análisis
+    private static final int MAX_POOLED_SETS = 128;
+    // Máximo de ítems de un conjunto que se conserva (ver clear())
+    private static final int MAX_POOLED_SET_SIZE = 1 << 10;
+
+    private static final ThreadLocal<ParserArena> LOCAL = ThreadLocal.withInitial(ParserArena::new);
+
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private final BitSet predicted = new BitSet();
+    private final ArrayList<StateSet<Object>> pool = new ArrayList<>();
+    private final ArrayList<PackedStateSet> packedPool = new ArrayList<>();
+    private boolean inUse;
+
+    private ParserArena() {
+    }
+
+    /** @return La arena del hilo actual, reservada hasta que se llame a release() */
+    static ParserArena acquire() {
+        ParserArena arena = LOCAL.get();
+        if (arena.inUse)
+            arena = new ParserArena();
+        arena.inUse = true;
+        return arena;
+    }
+
+    /** Libera la arena para el siguiente análisis del hilo */
+    void release() {
+        queue.clear();
+        predicted.clear();
+        inUse = false;
+    }
+
+    /** @return La cola de trabajo, vacía */
+    @SuppressWarnings("unchecked")
+    <T> Queue<T> queue() {
+        queue.clear();
+        return (Queue<T>)(Queue<?>)queue;
+    }
+
+    /** @return El conjunto de no terminales predichos, vacío */
+    BitSet predicted() {
+        predicted.clear();
+        return predicted;
+    }
+
+    /**
+     * Obtiene conjuntos de estados vacíos, reutilizando los de análisis anteriores.
+     * @param count Número de conjuntos
+     */
+    @SuppressWarnings("unchecked")
+    <T> ArrayList<StateSet<T>> stateSets(int count) {
+        ArrayList<StateSet<T>> sets = new ArrayList<>(count);
+        while (sets.size() < count && ! pool.isEmpty())
+            sets.add((StateSet<T>)(StateSet<?>)pool.remove(pool.size() - 1));
+        while (sets.size() < count)
+            sets.add(new StateSet<>());
+        return sets;
+    }
+
+    /**
+     * Devuelve a la reserva unos conjuntos de estados que ya no se usan.
+     * @param sets Los conjuntos; no deben usarse después
+     */
+    @SuppressWarnings("unchecked")
+    <T> void recycle(ArrayList<StateSet<T>> sets) {
+        for (StateSet<T> set : sets) {
+            if (pool.size() >= MAX_POOLED_SETS)
+                break;
+            if (set.size() > MAX_POOLED_SET_SIZE)
+                continue;
+            set.clear();
+            pool.add((StateSet<Object>)(StateSet<?>)set);
+        }
+        sets.clear();
+    }
+
+    /**
+     * Obtiene conjuntos de ítems empaquetados vacíos, reutilizando los de análisis anteriores.
+     * @param count Número de conjuntos
+     */
+    ArrayList<PackedStateSet> packedSets(int count) {
+        ArrayList<PackedStateSet> sets = new ArrayList<>(count);
+        while (sets.size() < count && ! packedPool.isEmpty())
+            sets.add(packedPool.remove(packedPool.size() - 1));
+        while (sets.size() < count)
+            sets.add(new PackedStateSet());
+        return sets;
+    }
+
+    /**
+     * Devuelve a la reserva unos conjuntos de ítems empaquetados que ya no se usan.
+     * @param sets Los conjuntos; no deben usarse después
+     */
+    void recyclePacked(ArrayList<PackedStateSet> sets) {
+        for (PackedStateSet set : sets) {
+            if (packedPool.size() >= MAX_POOLED_SETS)
+                break;
+            if (set.size() > MAX_POOLED_SET_SIZE)
+                continue;
+            set.clear();
+            packedPool.add(set);
+        }
+        sets.clear();
+    }
+}
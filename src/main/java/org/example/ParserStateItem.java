@@ -1,30 +1,33 @@
 package org.example;
 
-import java.util.ArrayList;
-
 /**
  * ParserStateItem representa un estado en el algoritmo de análisis sintáctico de Earley.
  * Este algoritmo escanea la entrada de derecha a izquierda en esta implementación.
+ * Los símbolos y la producción se representan con los identificadores enteros de
+ * una CompiledGrammar. Los árboles reconocidos se internan con una TreeFactory, así que
+ * comparar dos ítems no recorre sus árboles.
  */
 public class ParserStateItem {
-    private final String nt;                               // Símbolo no terminal actual
+    private final int prod;                                // Producción (identificador)
+    private final int nt;                                  // Símbolo no terminal actual
     private final ImmutableListNode<ParseTree> parsed;     // Árboles de análisis ya construidos
-    private final ArrayList<String> rhs;                   // Lado derecho de la producción
+    private final int[] rhs;                               // Lado derecho de la producción
     private final int pos;                                 // Posición actual en el lado derecho
     private final int finish;                              // Posición final en la cadena de entrada
     private final int cachedHash;                          // Valor hash pre-calculado para eficiencia
 
     /**
      * Constructor para un ítem al final de una producción.
-     * @param nt Símbolo no terminal
-     * @param rhs Lado derecho de la producción
+     * @param grammar Gramática compilada
+     * @param prod Identificador de la producción
      * @param finish Posición final en la cadena de entrada
      */
-    public ParserStateItem(String nt, ArrayList<String> rhs, int finish) {
-        this.nt = nt;
+    public ParserStateItem(CompiledGrammar grammar, int prod, int finish) {
+        this.prod = prod;
+        this.nt = grammar.lhs(prod);
         this.parsed = null;
-        this.rhs = rhs;
-        this.pos = rhs.size();  // Inicializa en el final del lado derecho
+        this.rhs = grammar.rhs(prod);
+        this.pos = rhs.length;  // Inicializa en el final del lado derecho
         this.finish = finish;
         this.cachedHash = realHashCode();
     }
@@ -33,12 +36,14 @@ public class ParserStateItem {
      * Constructor para avanzar un ítem existente.
      * @param prev Ítem anterior
      * @param t Árbol de análisis para el símbolo reconocido
+     * @param trees Fábrica con la que se internan las listas de árboles
      */
-    public ParserStateItem(ParserStateItem prev, ParseTree t) {
+    public ParserStateItem(ParserStateItem prev, ParseTree t, TreeFactory trees) {
         if (prev.finished())
             throw new IllegalArgumentException("advancing at end");
+        prod = prev.prod;
         nt = prev.nt;
-        parsed = new ImmutableListNode<ParseTree>(t, prev.parsed);
+        parsed = trees.list(t, prev.parsed);
         rhs = prev.rhs;
         pos = prev.pos - 1;  // Retrocede una posición (análisis de derecha a izquierda)
         finish = prev.finish;
@@ -51,8 +56,7 @@ public class ParserStateItem {
     public boolean equals(Object obj) {
         ParserStateItem o = (ParserStateItem)obj;
         return o != null &&
-            finish == o.finish && pos == o.pos && nt.equals(o.nt) &&
-            rhs.equals(o.rhs) &&
+            finish == o.finish && pos == o.pos && prod == o.prod &&
             (parsed == null ? o.parsed == null : parsed.equals(o.parsed));
     }
 
@@ -67,18 +71,18 @@ public class ParserStateItem {
      * Calcula el hash code real del ítem.
      */
     private int realHashCode() {
-        return 13*finish + 19*pos + 23*nt.hashCode() +
-            29*rhs.hashCode() + (parsed == null ? 1 : 37*parsed.hashCode());
+        return 13*finish + 19*pos + 23*prod + (parsed == null ? 1 : 37*parsed.hashCode());
     }
 
     /**
      * Genera una representación en cadena del ítem.
+     * @param grammar Gramática compilada con los nombres de los símbolos
      */
-    public String toString() {
+    public String toString(CompiledGrammar grammar) {
         StringBuffer s = new StringBuffer();
-        s.append('(').append(nt).append(" -> ");
+        s.append('(').append(grammar.name(nt)).append(" -> ");
         for (int i = 0; i < pos; i++)
-            s.append(rhs.get(i));
+            s.append(grammar.name(rhs[i]));
         s.append('.');
         for (ParseTree t : ImmutableListNode.iterable(parsed))
             s.append(t.shortName());
@@ -98,33 +102,42 @@ public class ParserStateItem {
     /**
      * Verifica si el ítem ha terminado y corresponde a un símbolo no terminal específico.
      */
-    public boolean finished(String nt) {
-        return pos == 0 && this.nt.equals(nt);
+    public boolean finished(int nt) {
+        return pos == 0 && this.nt == nt;
     }
 
     /**
      * Verifica si el siguiente símbolo a procesar coincide con el dado.
      */
-    public boolean match(String sym) {
-        return pos > 0 && rhs.get(pos-1).equals(sym);
+    public boolean match(int sym) {
+        return pos > 0 && rhs[pos-1] == sym;
     }
 
     /**
      * Retorna el símbolo actual a procesar.
      */
-    public String current() {
+    public int current() {
         if (finished())
             throw new IllegalStateException("current at end");
-        return rhs.get(pos-1);
+        return rhs[pos-1];
+    }
+
+    /**
+     * Retorna el no terminal del lado izquierdo.
+     */
+    public int nonTerminal() {
+        return nt;
     }
 
     /**
      * Completa el árbol de análisis para este ítem.
+     * @param grammar Gramática compilada con los nombres de los símbolos
+     * @param trees Fábrica con la que se interna el árbol
      */
-    public NonTerminalTree complete() {
+    public NonTerminalTree complete(CompiledGrammar grammar, TreeFactory trees) {
         if (! finished())
             throw new IllegalStateException("not complete");
-        return new NonTerminalTree(nt, ImmutableListNode.iterable(parsed));
+        return trees.nonTerminal(grammar.name(nt), parsed);
     }
 
     /**
@@ -133,17 +146,4 @@ public class ParserStateItem {
     public int start() {
         return finish;
     }
-
-    /**
-     * Completa el árbol de análisis superior para este ítem.
-     */
-    public NonTerminalTree completeTop() {
-        if (! finished())
-            throw new IllegalStateException("current at end");
-        if (parsed == null)
-            throw new IllegalStateException("null list");
-        if (parsed.tail != null)
-            throw new IllegalStateException("non-singleton list");
-        return (NonTerminalTree)parsed.head;
-    }
-}
\ No newline at end of file
+}
@@ -1,44 +1,88 @@
 package org.example;
 
-import java.io.PrintWriter; 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
 
-// Clase SVG que se encarga de generar contenido en formato SVG
+// Clase SVG que se encarga de generar contenido en formato SVG.
+// Escribe en un búfer de caracteres reutilizable, sin concatenar cadenas y formateando los
+// enteros directamente en el búfer, y lo vuelca a un Appendable (por ejemplo un Writer o un
+// StringBuilder) o a un WritableByteChannel (en UTF-8) cuando se llena y al llamar a flush().
+// Los errores de escritura se lanzan como UncheckedIOException.
 public class SVG {
-    private final PrintWriter out; // Almacena el objeto PrintWriter para la salida
+    private static final int CAPACITY = 8192;
 
-    // Constructor que recibe un PrintWriter y lo asigna al atributo out
-    public SVG(PrintWriter out) {
+    private final Appendable out;               // Destino de texto, o null
+    private final WritableByteChannel channel;  // Destino binario, o null
+    private final char[] buf = new char[CAPACITY];
+    private final CharBuffer view = CharBuffer.wrap(buf); // Vista del búfer para volcarlo
+    private int len;                            // Caracteres pendientes en el búfer
+    private CharsetEncoder encoder;             // Sólo para el canal
+    private ByteBuffer bytes;
+
+    // Constructor que recibe un destino de texto (un PrintWriter, un StringBuilder, ...)
+    public SVG(Appendable out) {
         this.out = out;
+        this.channel = null;
+    }
+
+    // Constructor que escribe el SVG en UTF-8 en un canal
+    public SVG(WritableByteChannel channel) {
+        this.out = null;
+        this.channel = channel;
+        this.encoder = StandardCharsets.UTF_8.newEncoder();
+        this.bytes = ByteBuffer.allocate(4*CAPACITY);
     }
 
     // Método para iniciar una etiqueta SVG
     public void startTag(String tag) {
-        out.print("<" + tag); 
+        put('<');
+        put(tag);
     }
 
     // Método sobrecargado para agregar un atributo a la etiqueta con valor entero
     public void attribute(String name, int value) {
-        out.print(" " + name + "=\"" + value + "\""); 
+        put(' ');
+        put(name);
+        put('=');
+        put('"');
+        put(value);
+        put('"');
     }
 
     // Método sobrecargado para agregar un atributo a la etiqueta con valor string
     public void attribute(String name, String value) {
-        out.print(" " + name + "=\"" + value + "\"");
+        put(' ');
+        put(name);
+        put('=');
+        put('"');
+        put(value);
+        put('"');
     }
 
     // Método para cerrar la etiqueta con un corchete de cierre
     public void closeBracket() {
-        out.print(">"); 
+        put('>');
     }
 
     // Método para cerrar una etiqueta vacía (como un <tag/>)
     public void closeEmpty() {
-        out.print("/>"); 
+        put('/');
+        put('>');
     }
 
     // Método para cerrar una etiqueta existente
     public void endTag(String tag) {
-        out.print("</" + tag + ">"); 
+        put('<');
+        put('/');
+        put(tag);
+        put('>');
     }
 
     // Método para iniciar un grupo de líneas con un color específico
@@ -52,7 +96,7 @@ public class SVG {
 
     // Método para finalizar el grupo de líneas
     public void endLines() {
-        endTag("g"); 
+        endTag("g");
     }
 
     // Método para dibujar una línea en el SVG
@@ -73,7 +117,97 @@ public class SVG {
         attribute("text-anchor", "middle"); // Centra el texto en la posición especificada
         attribute("fill", colour); // Establece el color del texto
         closeBracket(); // Cierra la etiqueta de texto
-        out.print(s); // Imprime el contenido del texto
+        put(s); // Escribe el contenido del texto
         endTag("text"); // Cierra la etiqueta de texto
     }
+
+    // Método para volcar al destino todo lo escrito hasta ahora
+    public void flush() {
+        try {
+            if (channel != null) {
+                encode();
+            } else if (out instanceof Writer) {
+                ((Writer)out).write(buf, 0, len);
+                len = 0;
+            } else {
+                view.clear().limit(len);
+                out.append(view);
+                len = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Añade un carácter al búfer
+    private void put(char c) {
+        if (len == buf.length)
+            flush();
+        buf[len++] = c;
+    }
+
+    // Añade una cadena al búfer, por trozos si no cabe
+    private void put(String s) {
+        int n = s.length();
+        int from = 0;
+        while (from < n) {
+            if (len == buf.length)
+                flush();
+            int k = Math.min(n - from, buf.length - len);
+            s.getChars(from, from + k, buf, len);
+            len = len + k;
+            from = from + k;
+        }
+    }
+
+    // Añade un entero en decimal, escribiendo las cifras directamente en el búfer
+    private void put(int value) {
+        if (len + 11 > buf.length)
+            flush();
+        if (value == Integer.MIN_VALUE) {
+            put("-2147483648");
+            return;
+        }
+        if (value < 0) {
+            buf[len++] = '-';
+            value = -value;
+        }
+        int end = len + digits(value);
+        int i = end;
+        do {
+            buf[--i] = (char)('0' + value % 10);
+            value = value / 10;
+        } while (value != 0);
+        len = end;
+    }
+
+    // Número de cifras de un entero no negativo
+    private static int digits(int value) {
+        int n = 1;
+        while (value >= 10) {
+            value = value / 10;
+            n++;
+        }
+        return n;
+    }
+
+    // Codifica el búfer en UTF-8 y lo escribe en el canal. Si queda la primera mitad de un
+    // par sustituto (porque la segunda aún no se ha escrito), se conserva en el búfer.
+    private void encode() throws IOException {
+        view.clear().limit(len);
+        while (true) {
+            CoderResult r = encoder.encode(view, bytes, false);
+            bytes.flip();
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+            bytes.clear();
+            if (r.isUnderflow())
+                break;
+            if (r.isError())
+                r.throwException();
+        }
+        int rest = view.remaining();
+        System.arraycopy(buf, view.position(), buf, 0, rest);
+        len = rest;
+    }
 }
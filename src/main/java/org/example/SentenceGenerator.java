@@ -0,0 +1,226 @@
+package org.example;
+
+import java.math.BigInteger;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * SentenceGenerator: Genera las frases (o los árboles de derivación) del lenguaje de una
+ * gramática por longitud, como un Stream y con memoria acotada.
+ *
+ * A diferencia de Expansion, no guarda ningún árbol: cuenta las derivaciones de cada
+ * longitud (DerivationTable) y construye cada árbol a partir de su rango, un número entre 0
+ * y el total de derivaciones de esa longitud. Las derivaciones de una longitud se recorren
+ * en orden de rango, así que la memoria no crece con el número de frases generadas sino
+ * sólo con la longitud máxima. Con distinct se descartan las frases repetidas (de las
+ * gramáticas ambiguas); eso sí guarda las frases ya vistas de cada longitud.
+ *
+ * Un rango aleatorio uniforme da un árbol de derivación aleatorio uniforme entre los de
+ * esa longitud (en las gramáticas ambiguas, las frases con más árboles salen más a menudo).
+ *
+ * La gramática no debe ser infinitamente ambigua. Una instancia no debe usarse desde
+ * varios hilos a la vez.
+ */
+public class SentenceGenerator {
+    private final CompiledGrammar grammar;
+    private final DerivationTable<BigInteger[]> table;
+    private final TerminalTree[] terminals; // Árbol compartido para cada terminal
+
+    public SentenceGenerator(Grammar grammar) {
+        this(grammar.compile());
+    }
+
+    /**
+     * @param grammar La gramática compilada
+     * @throws IllegalArgumentException si la gramática es infinitamente ambigua
+     */
+    public SentenceGenerator(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        this.table = new DerivationTable<>(grammar, DerivationTable.COUNT);
+        this.terminals = new TerminalTree[grammar.symbolCount()];
+        for (int sym = grammar.nonTerminalCount(); sym < terminals.length; sym++)
+            terminals[sym] = new TerminalTree(grammar.name(sym));
+    }
+
+    /**
+     * @param length Longitud de las frases, en símbolos
+     * @return Número de árboles de derivación del símbolo inicial con esa longitud
+     */
+    public BigInteger count(int length) {
+        table.ensure(length);
+        return table.counts(length)[grammar.start()];
+    }
+
+    /**
+     * @param length Longitud de las frases, en símbolos
+     * @return Los árboles de derivación de esa longitud, en orden de rango
+     */
+    public Stream<NonTerminalTree> trees(int length) {
+        return ranks(length).map(r -> tree(length, r));
+    }
+
+    /**
+     * @param length Longitud de las frases, en símbolos
+     * @param distinct true para descartar las frases repetidas
+     * @return Las frases de esa longitud, una por árbol de derivación salvo con distinct
+     */
+    public Stream<String> sentences(int length, boolean distinct) {
+        Stream<String> s = ranks(length).map(r -> sentence(length, r));
+        return distinct ? s.distinct() : s;
+    }
+
+    /**
+     * @param maxLength Longitud máxima de las frases
+     * @param distinct true para descartar las frases repetidas
+     * @return Las frases de longitud 0 a maxLength, por longitud creciente
+     */
+    public Stream<String> sentencesUpTo(int maxLength, boolean distinct) {
+        return IntStream.rangeClosed(0, maxLength).boxed().flatMap(n -> sentences(n, distinct));
+    }
+
+    /**
+     * Construye el árbol de derivación con un rango dado.
+     * @param length Longitud de la frase
+     * @param rank Rango, entre 0 y count(length)-1
+     */
+    public NonTerminalTree tree(int length, BigInteger rank) {
+        check(length, rank);
+        return derive(grammar.start(), length, rank, null);
+    }
+
+    /**
+     * Construye la frase del árbol de derivación con un rango dado, sin construir el árbol.
+     * Los símbolos se separan con espacios, como en NonTerminalTree.sentence().
+     * @param length Longitud de la frase
+     * @param rank Rango, entre 0 y count(length)-1
+     */
+    public String sentence(int length, BigInteger rank) {
+        check(length, rank);
+        StringBuilder out = new StringBuilder();
+        derive(grammar.start(), length, rank, out);
+        return out.toString();
+    }
+
+    /**
+     * @param length Longitud de la frase
+     * @param random Generador de números aleatorios
+     * @return Un árbol de derivación de esa longitud elegido de manera uniforme
+     * @throws IllegalArgumentException si no hay ninguna frase de esa longitud
+     */
+    public NonTerminalTree randomTree(int length, RandomGenerator random) {
+        return tree(length, randomBelow(count(length), random));
+    }
+
+    /**
+     * @param length Longitud de la frase
+     * @param random Generador de números aleatorios
+     * @return La frase de un árbol de derivación de esa longitud elegido de manera uniforme
+     * @throws IllegalArgumentException si no hay ninguna frase de esa longitud
+     */
+    public String randomSentence(int length, RandomGenerator random) {
+        return sentence(length, randomBelow(count(length), random));
+    }
+
+    /**
+     * @param length Longitud de las frases
+     * @param random Generador de números aleatorios
+     * @return Un flujo infinito de frases aleatorias (ver randomSentence)
+     */
+    public Stream<String> randomSentences(int length, RandomGenerator random) {
+        count(length);
+        return Stream.generate(() -> randomSentence(length, random));
+    }
+
+    // Rangos de 0 a count(length)-1
+    private Stream<BigInteger> ranks(int length) {
+        final BigInteger total = count(length);
+        return Stream.iterate(BigInteger.ZERO, r -> r.compareTo(total) < 0, r -> r.add(BigInteger.ONE));
+    }
+
+    private void check(int length, BigInteger rank) {
+        BigInteger total = count(length);
+        if (total.signum() == 0)
+            throw new IllegalArgumentException("no sentence of length " + length);
+        if (rank.signum() < 0 || rank.compareTo(total) >= 0)
+            throw new IllegalArgumentException("rank " + rank + " out of range");
+    }
+
+    /**
+     * Construye la derivación de rango 'rank' entre las de 'nt' con 'n' símbolos.
+     * Si 'out' no es null, sólo añade la frase a 'out' y devuelve null.
+     */
+    private NonTerminalTree derive(int nt, int n, BigInteger rank, StringBuilder out) {
+        for (int prod : grammar.productions(nt)) {
+            BigInteger c = table.suffixes(n)[grammar.item(prod, 0)];
+            if (rank.compareTo(c) < 0)
+                return deriveProduction(prod, n, rank, out);
+            rank = rank.subtract(c);
+        }
+        throw new IllegalStateException("rank out of range");
+    }
+
+    /**
+     * Construye la derivación de rango 'rank' entre las de la producción 'prod' con 'n'
+     * símbolos. Los hijos se eligen de izquierda a derecha: para cada uno, su longitud k,
+     * y luego su rango y el del resto como cociente y resto de la división por el número
+     * de derivaciones del resto.
+     */
+    private NonTerminalTree deriveProduction(int prod, int n, BigInteger rank, StringBuilder out) {
+        int[] rhs = grammar.rhs(prod);
+        ParseTree[] children = out == null ? new ParseTree[rhs.length] : null;
+        int item = grammar.item(prod, 0);
+        for (int i = 0; i < rhs.length; i++, item++) {
+            int sym = rhs[i];
+            for (int k = 0; ; k++) {
+                BigInteger rest = table.suffixes(n - k)[item + 1];
+                BigInteger c = table.counts(k)[sym].multiply(rest);
+                if (c.signum() == 0)
+                    continue;
+                if (rank.compareTo(c) < 0) {
+                    BigInteger[] qr = rank.divideAndRemainder(rest);
+                    ParseTree child;
+                    if (grammar.isTerminal(sym)) {
+                        child = terminals[sym];
+                        if (out != null) {
+                            if (out.length() > 0) // Como NonTerminalTree.sentence()
+                                out.append(' ');
+                            out.append(grammar.name(sym));
+                        }
+                    } else {
+                        child = derive(sym, k, qr[0], out);
+                    }
+                    if (children != null)
+                        children[i] = child;
+                    rank = qr[1];
+                    n = n - k;
+                    break;
+                }
+                rank = rank.subtract(c);
+            }
+        }
+        if (out != null)
+            return null;
+        ImmutableListNode<ParseTree> list = null;
+        for (int i = rhs.length - 1; i >= 0; i--)
+            list = new ImmutableListNode<>(children[i], list);
+        return new NonTerminalTree(grammar.name(grammar.lhs(prod)), ImmutableListNode.iterable(list));
+    }
+
+    // Número aleatorio uniforme entre 0 y bound-1, por rechazo
+    private static BigInteger randomBelow(BigInteger bound, RandomGenerator random) {
+        if (bound.signum() == 0)
+            throw new IllegalArgumentException("no sentence of that length");
+        int bits = bound.bitLength();
+        byte[] bytes = new byte[(bits + 7) / 8 + 1];
+        while (true) {
+            for (int i = 1; i < bytes.length; i++)
+                bytes[i] = (byte)random.nextInt();
+            // Se descartan los bits sobrantes del byte más significativo
+            bytes[1] &= (byte)(0xFF >>> (8*(bytes.length - 1) - bits));
+            BigInteger r = new BigInteger(bytes);
+            if (r.compareTo(bound) < 0)
+                return r;
+        }
+    }
+}
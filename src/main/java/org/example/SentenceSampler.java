@@ -0,0 +1,221 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * SentenceSampler: Genera frases aleatorias de una longitud dada, eligiendo de manera
+ * uniforme entre los árboles de derivación de esa longitud.
+ *
+ * Al crearlo se precalcula, hasta una longitud máxima, el número de derivaciones de cada
+ * no terminal y de cada sufijo de producción para cada longitud con una DerivationTable en
+ * escala logarítmica (LOG_COUNT): así no hace falta aritmética de enteros grandes y las
+ * probabilidades se obtienen restando logaritmos. Los no terminales no realizables
+ * (GrammarProperties) tienen probabilidad cero y nunca se eligen.
+ *
+ * Cada frase se construye de arriba abajo con una pila: en cada nodo se elige la producción
+ * y la longitud de cada hijo en proporción a su número de derivaciones. Las longitudes se
+ * prueban en orden "bustrofedón" (0, n, 1, n-1, ...), de modo que el coste de elegir es
+ * proporcional a la menor de las dos partes y el de toda la frase es O(n log n) en el peor
+ * caso y casi lineal en la práctica. La uniformidad es exacta salvo por el redondeo de los
+ * números en coma flotante.
+ *
+ * Una vez creado, el muestreador no cambia y puede usarse desde varios hilos, cada uno con
+ * su propio generador aleatorio; samples() reparte el trabajo de un flujo paralelo con
+ * generadores SplittableRandom independientes.
+ */
+public class SentenceSampler {
+    private final CompiledGrammar grammar;
+    private final int maxLength;
+    private final DerivationTable<double[]> table; // Logaritmos de los números de derivaciones
+
+    public SentenceSampler(Grammar grammar, int maxLength) {
+        this(grammar.compile(), maxLength);
+    }
+
+    /**
+     * @param grammar La gramática compilada
+     * @param maxLength Longitud máxima de las frases que se van a pedir
+     * @throws IllegalArgumentException si la gramática es infinitamente ambigua
+     */
+    public SentenceSampler(CompiledGrammar grammar, int maxLength) {
+        this.grammar = grammar;
+        this.maxLength = maxLength;
+        this.table = new DerivationTable<>(grammar, DerivationTable.LOG_COUNT);
+        table.ensure(maxLength);
+    }
+
+    /**
+     * @param length Longitud de las frases
+     * @return true si hay alguna frase de esa longitud
+     */
+    public boolean hasSentences(int length) {
+        return length >= 0 && length <= maxLength && table.counts(length)[grammar.start()] != Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @param length Longitud de las frases
+     * @return Logaritmo natural del número de árboles de derivación de esa longitud
+     */
+    public double logCount(int length) {
+        checkLength(length);
+        return table.counts(length)[grammar.start()];
+    }
+
+    /**
+     * Genera una frase aleatoria.
+     * Los símbolos se separan con espacios, como en NonTerminalTree.sentence().
+     * @param length Longitud de la frase, entre 0 y la longitud máxima
+     * @param random Generador de números aleatorios
+     * @return La frase de un árbol de derivación elegido de manera uniforme
+     * @throws IllegalArgumentException si no hay ninguna frase de esa longitud
+     */
+    public String sample(int length, RandomGenerator random) {
+        if (! hasSentences(length))
+            throw new IllegalArgumentException("no sentence of length " + length);
+        StringBuilder out = new StringBuilder();
+        // Pila de símbolos pendientes y sus longitudes, de derecha a izquierda
+        int[] syms = new int[16];
+        int[] lengths = new int[16];
+        int top = 0;
+        syms[top] = grammar.start();
+        lengths[top++] = length;
+        int[] split = new int[4];
+        while (top > 0) {
+            int sym = syms[--top];
+            int n = lengths[top];
+            if (grammar.isTerminal(sym)) {
+                if (out.length() > 0)
+                    out.append(' ');
+                out.append(grammar.name(sym));
+                continue;
+            }
+            int prod = chooseProduction(sym, n, random);
+            int[] rhs = grammar.rhs(prod);
+            if (split.length < rhs.length)
+                split = new int[rhs.length];
+            int item = grammar.item(prod, 0);
+            for (int i = 0; i < rhs.length; i++) {
+                split[i] = chooseLength(item + i, n, random);
+                n = n - split[i];
+            }
+            if (top + rhs.length > syms.length) {
+                syms = Arrays.copyOf(syms, 2*(top + rhs.length));
+                lengths = Arrays.copyOf(lengths, syms.length);
+            }
+            for (int i = rhs.length - 1; i >= 0; i--) {
+                syms[top] = rhs[i];
+                lengths[top++] = split[i];
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Genera un flujo de frases aleatorias que puede recorrerse en paralelo (parallel()):
+     * al partirse, cada parte recibe un generador independiente (SplittableRandom.split).
+     * @param length Longitud de las frases
+     * @param count Número de frases
+     * @param random Generador inicial
+     * @return Un flujo de 'count' frases (ver sample)
+     */
+    public Stream<String> samples(int length, long count, SplittableRandom random) {
+        if (! hasSentences(length))
+            throw new IllegalArgumentException("no sentence of length " + length);
+        return StreamSupport.stream(new Samples(length, count, random), false);
+    }
+
+    // Elige una producción de 'nt' con probabilidad proporcional a sus derivaciones de longitud n
+    private int chooseProduction(int nt, int n, RandomGenerator random) {
+        double total = table.counts(n)[nt];
+        double[] suffixes = table.suffixes(n);
+        double u = random.nextDouble();
+        int chosen = -1;
+        for (int prod : grammar.productions(nt)) {
+            double s = suffixes[grammar.item(prod, 0)];
+            if (s == Double.NEGATIVE_INFINITY)
+                continue;
+            chosen = prod;
+            u = u - Math.exp(s - total);
+            if (u < 0)
+                break;
+        }
+        return chosen;
+    }
+
+    /**
+     * Elige la longitud del símbolo tras el punto de un ítem, cuando el sufijo tiene 'n'
+     * símbolos, con probabilidad proporcional a las derivaciones de cada reparto.
+     * Prueba las longitudes en orden bustrofedón: 0, n, 1, n-1, ...
+     */
+    private int chooseLength(int item, int n, RandomGenerator random) {
+        int sym = grammar.rhs(grammar.itemProduction(item))[grammar.itemPosition(item)];
+        if (grammar.isTerminal(sym))
+            return 1;
+        double total = table.suffixes(n)[item];
+        double u = random.nextDouble();
+        int chosen = -1;
+        for (int lo = 0, hi = n; lo <= hi; lo++, hi--) {
+            for (int k = lo; ; k = hi) {
+                // Con logaritmos el producto es una suma, y -infinito si algún factor es cero
+                double p = table.counts(k)[sym] + table.suffixes(n - k)[item + 1];
+                if (p != Double.NEGATIVE_INFINITY) {
+                    chosen = k;
+                    u = u - Math.exp(p - total);
+                    if (u < 0)
+                        return k;
+                }
+                if (k == hi)
+                    break;
+            }
+        }
+        return chosen;
+    }
+
+    private void checkLength(int length) {
+        if (length < 0 || length > maxLength)
+            throw new IllegalArgumentException("length " + length + " outside 0.." + maxLength);
+    }
+
+    // Frases aleatorias de un flujo; al partirse, la nueva parte usa un generador derivado
+    private final class Samples implements Spliterator<String> {
+        private final int length;
+        private long remaining;
+        private final SplittableRandom random;
+
+        Samples(int length, long remaining, SplittableRandom random) {
+            this.length = length;
+            this.remaining = remaining;
+            this.random = random;
+        }
+
+        public boolean tryAdvance(Consumer<? super String> action) {
+            if (remaining <= 0)
+                return false;
+            remaining--;
+            action.accept(sample(length, random));
+            return true;
+        }
+
+        public Spliterator<String> trySplit() {
+            long half = remaining / 2;
+            if (half == 0)
+                return null;
+            remaining = remaining - half;
+            return new Samples(length, half, random.split());
+        }
+
+        public long estimateSize() {
+            return remaining;
+        }
+
+        public int characteristics() {
+            return SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
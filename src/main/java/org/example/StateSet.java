@@ -0,0 +1,131 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * StateSet: Conjunto de estados de Earley indexado por el símbolo esperado.
+ *
+ * Además de los ítems, guarda para cada símbolo la lista de ítems que lo esperan
+ * a continuación. Así, al completar un no terminal o escanear un terminal, el analizador
+ * recorre sólo los ítems que pueden avanzar, en lugar de todo el conjunto.
+ *
+ * El índice es una tabla hash de direccionamiento abierto con claves enteras, para no
+ * crear objetos Integer en cada consulta. Un conjunto puede vaciarse con clear() y
+ * reutilizarse, conservando sus tablas y listas (ver ParserArena).
+ *
+ * @param <T> Tipo de los ítems (ParserStateItem o DottedItem)
+ */
+public class StateSet<T> implements Iterable<T> {
+    private static final int EMPTY = -1;
+
+    private final Set<T> items;       // Todos los ítems del conjunto
+    private int[] keys;               // Símbolos esperados (EMPTY si la casilla está libre)
+    private List<T>[] waiting;        // Ítems que esperan cada símbolo
+    private int used;                 // Casillas ocupadas del índice
+    private final ArrayList<List<T>> spare; // Listas vaciadas, listas para reutilizar
+
+    public StateSet() {
+        items = new HashSet<>();
+        spare = new ArrayList<>();
+        allocate(8);
+    }
+
+    /**
+     * Añade un ítem al conjunto.
+     * @param item El ítem
+     * @param next El símbolo que el ítem espera a continuación, o -1 si está completo
+     * @return true si el ítem no estaba en el conjunto
+     */
+    public boolean add(T item, int next) {
+        if (! items.add(item))
+            return false;
+        if (next >= 0) {
+            int slot = find(next);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = next;
+                waiting[slot] = spare.isEmpty() ? new ArrayList<>(2) : spare.remove(spare.size() - 1);
+                used++;
+                waiting[slot].add(item);
+                if (2*used > keys.length)
+                    rehash();
+            } else {
+                waiting[slot].add(item);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Vacía el conjunto, conservando la capacidad reservada para reutilizarlo.
+     */
+    public void clear() {
+        items.clear();
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != EMPTY) {
+                waiting[i].clear();
+                spare.add(waiting[i]);
+                waiting[i] = null;
+                keys[i] = EMPTY;
+            }
+        used = 0;
+    }
+
+    public boolean contains(T item) {
+        return items.contains(item);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Obtiene los ítems que esperan un símbolo.
+     * @param sym El símbolo
+     * @return Los ítems cuyo siguiente símbolo es 'sym' (lista vacía si no hay ninguno)
+     */
+    public List<T> waiting(int sym) {
+        int slot = find(sym);
+        return keys[slot] == EMPTY ? Collections.<T>emptyList() : waiting[slot];
+    }
+
+    public Iterator<T> iterator() {
+        return items.iterator();
+    }
+
+    // Busca la casilla de un símbolo (o la casilla libre donde iría)
+    private int find(int sym) {
+        int mask = keys.length - 1;
+        int h = sym * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != sym)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        waiting = (List<T>[])new List<?>[capacity];
+        used = 0;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        List<T>[] oldWaiting = waiting;
+        allocate(2*oldKeys.length);
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                waiting[slot] = oldWaiting[i];
+                used++;
+            }
+    }
+}
@@ -0,0 +1,318 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * StreamingRecognizer: Reconocedor de izquierda a derecha que recibe la entrada símbolo a
+ * símbolo, por ejemplo desde un Iterator o un Flow.Publisher.
+ *
+ * A diferencia de ContextFreeParser, que necesita toda la entrada para empezar por el
+ * final, este reconocedor construye los conjuntos de estados de Earley hacia la derecha
+ * y, tras cada símbolo, informa de si lo leído hasta entonces:
+ * - es una frase del lenguaje (ACCEPTED),
+ * - es el prefijo de alguna frase (VIABLE), o
+ * - no es prefijo de ninguna frase (DEAD), y entonces ya no hace falta seguir leyendo.
+ *
+ * Para que VIABLE sea exacto no se predicen las producciones con algún no terminal no
+ * realizable: así todo ítem de un conjunto puede llegar a completarse. Las producciones
+ * anulables se tratan como en ContextFreeParser (Aycock-Horspool).
+ *
+ * Sólo se conservan los conjuntos de estados que aún pueden necesitarse: los de las
+ * posiciones de origen de ítems pendientes, directa o indirectamente, del último conjunto.
+ * La poda se hace cuando el número de conjuntos vivos se duplica, de modo que su coste
+ * total es lineal en el de construir los conjuntos.
+ *
+ * Una instancia no debe usarse desde varios hilos a la vez.
+ */
+public class StreamingRecognizer {
+    /**
+     * Estado de la entrada leída hasta el momento.
+     */
+    public enum Status {
+        VIABLE,     // Prefijo de alguna frase del lenguaje
+        ACCEPTED,   // Frase del lenguaje
+        DEAD        // No es prefijo de ninguna frase
+    }
+
+    private final CompiledGrammar grammar;
+    private final GrammarProperties props;
+    private final boolean[] usable;      // Producciones sin no terminales no realizables
+    // Conjuntos de estados por posición (null si se descartaron)
+    private final ArrayList<StateSet<Item>> sets = new ArrayList<>();
+    private final ArrayList<StateSet<Item>> spare = new ArrayList<>();
+    private final ArrayDeque<Item> queue = new ArrayDeque<>();
+    private final BitSet predicted = new BitSet();
+    private int position;                // Símbolos leídos
+    private int live;                    // Conjuntos conservados
+    private int pruneAt;                 // Número de conjuntos vivos que provoca una poda
+    private Status status;
+
+    public StreamingRecognizer(Grammar grammar) {
+        this(grammar.compile());
+    }
+
+    public StreamingRecognizer(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        this.props = grammar.properties();
+        this.usable = new boolean[grammar.productionCount()];
+        for (int prod = 0; prod < usable.length; prod++) {
+            usable[prod] = true;
+            for (int sym : grammar.rhs(prod))
+                if (props.isUnrealizable(sym))
+                    usable[prod] = false;
+        }
+        reset();
+    }
+
+    /**
+     * Vuelve al principio de la entrada.
+     */
+    public void reset() {
+        for (StateSet<Item> set : sets)
+            if (set != null) {
+                set.clear();
+                spare.add(set);
+            }
+        sets.clear();
+        position = 0;
+        live = 0;
+        pruneAt = 16;
+        StateSet<Item> first = newSet();
+        predict(grammar.start(), 0);
+        close(first, 0);
+        status = evaluate(first);
+    }
+
+    /**
+     * Lee un símbolo más de la entrada. Si la entrada ya está muerta, no hace nada.
+     * @param token El símbolo
+     * @return El estado de la entrada tras leerlo
+     */
+    public Status push(String token) {
+        if (status == Status.DEAD)
+            return status;
+        int sym = grammar.id(token);
+        StateSet<Item> previous = sets.get(position);
+        position++;
+        StateSet<Item> next = newSet();
+        if (grammar.isTerminal(sym))
+            for (Item item : previous.waiting(sym))
+                queue.add(item.advance());
+        close(next, position);
+        status = evaluate(next);
+        if (status == Status.DEAD)
+            discardAll();
+        else if (live > pruneAt)
+            prune();
+        return status;
+    }
+
+    /**
+     * Lee símbolos de un iterador hasta que se acaben o la entrada muera.
+     * @param tokens Los símbolos
+     * @param listener Recibe el estado tras cada símbolo
+     * @return El estado final
+     */
+    public Status consume(Iterator<String> tokens, Consumer<Status> listener) {
+        while (status != Status.DEAD && tokens.hasNext())
+            listener.accept(push(tokens.next()));
+        return status;
+    }
+
+    /**
+     * Lee símbolos de un iterador hasta que se acaben o la entrada muera.
+     * @param tokens Los símbolos
+     * @return El estado final
+     */
+    public Status consume(Iterator<String> tokens) {
+        return consume(tokens, s -> { });
+    }
+
+    /**
+     * Se suscribe a un productor de símbolos. Pide los símbolos de uno en uno y cancela la
+     * suscripción en cuanto la entrada muere.
+     * @param publisher El productor
+     * @param listener Recibe el estado tras cada símbolo
+     * @return El estado final, cuando el productor termina o la entrada muere
+     */
+    public CompletableFuture<Status> subscribe(Flow.Publisher<String> publisher, Consumer<Status> listener) {
+        CompletableFuture<Status> result = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<String>() {
+            private Flow.Subscription subscription;
+
+            public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+
+            public void onNext(String token) {
+                if (result.isDone())
+                    return;
+                Status s = push(token);
+                listener.accept(s);
+                if (s == Status.DEAD) {
+                    subscription.cancel();
+                    result.complete(s);
+                } else {
+                    subscription.request(1);
+                }
+            }
+
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            public void onComplete() {
+                result.complete(status);
+            }
+        });
+        return result;
+    }
+
+    /** @return El estado de la entrada leída hasta ahora */
+    public Status status() {
+        return status;
+    }
+
+    /** @return Número de símbolos leídos */
+    public int position() {
+        return position;
+    }
+
+    /** @return Número de conjuntos de estados conservados */
+    public int liveSets() {
+        return live;
+    }
+
+    // Añade un conjunto vacío para la posición actual
+    private StateSet<Item> newSet() {
+        StateSet<Item> set = spare.isEmpty() ? new StateSet<>() : spare.remove(spare.size() - 1);
+        sets.add(set);
+        live++;
+        predicted.clear();
+        return set;
+    }
+
+    // Predice las producciones utilizables de un no terminal
+    private void predict(int nt, int pos) {
+        if (predicted.get(nt))
+            return;
+        predicted.set(nt);
+        for (int prod : grammar.productions(nt))
+            if (usable[prod])
+                queue.add(new Item(grammar, grammar.item(prod, 0), pos));
+    }
+
+    // Completa un conjunto de estados a partir de los ítems de la cola
+    private void close(StateSet<Item> set, int pos) {
+        while (! queue.isEmpty()) {
+            Item item = queue.remove();
+            if (! set.add(item, item.next()))
+                continue;
+            int sym = item.next();
+            if (sym < 0) {
+                if (item.origin != pos) // Las expansiones nulas ya se saltaron al predecir
+                    for (Item prev : sets.get(item.origin).waiting(grammar.lhs(item.prod)))
+                        queue.add(prev.advance());
+            } else if (grammar.isNonTerminal(sym)) {
+                predict(sym, pos);
+                // Aycock-Horspool: un símbolo anulable puede saltarse directamente
+                if (props.isNullable(sym))
+                    queue.add(item.advance());
+            }
+        }
+    }
+
+    // Estado de la entrada según el último conjunto de estados
+    private Status evaluate(StateSet<Item> set) {
+        if (set.size() == 0)
+            return Status.DEAD;
+        for (int prod : grammar.productions(grammar.start()))
+            if (set.contains(new Item(grammar, grammar.item(prod, grammar.rhs(prod).length), 0)))
+                return Status.ACCEPTED;
+        return Status.VIABLE;
+    }
+
+    // Una entrada muerta no necesita ningún conjunto
+    private void discardAll() {
+        for (int k = 0; k <= position; k++)
+            discard(k);
+    }
+
+    /**
+     * Descarta los conjuntos de estados que ya no pueden necesitarse: sólo hacen falta el
+     * actual y, recursivamente, los de origen de los ítems pendientes de los que hacen falta.
+     */
+    private void prune() {
+        BitSet needed = new BitSet(position + 1);
+        int[] stack = new int[position + 1];
+        int top = 0;
+        needed.set(position);
+        stack[top++] = position;
+        while (top > 0) {
+            for (Item item : sets.get(stack[--top]))
+                if (item.next() >= 0 && ! needed.get(item.origin)) {
+                    needed.set(item.origin);
+                    stack[top++] = item.origin;
+                }
+        }
+        for (int k = 0; k < position; k++)
+            if (! needed.get(k))
+                discard(k);
+        pruneAt = 2*live + 16;
+    }
+
+    private void discard(int k) {
+        StateSet<Item> set = sets.get(k);
+        if (set != null) {
+            set.clear();
+            spare.add(set);
+            sets.set(k, null);
+            live--;
+        }
+    }
+
+    /**
+     * Ítem de Earley de izquierda a derecha: ítem de la gramática compilada (producción y
+     * número de símbolos ya reconocidos) y posición de origen.
+     */
+    private static final class Item {
+        private final CompiledGrammar grammar;
+        private final int item;
+        private final int prod;
+        private final int origin;
+
+        Item(CompiledGrammar grammar, int item, int origin) {
+            this.grammar = grammar;
+            this.item = item;
+            this.prod = grammar.itemProduction(item);
+            this.origin = origin;
+        }
+
+        // Símbolo a la derecha del punto, o -1 si el ítem está completo
+        int next() {
+            int[] rhs = grammar.rhs(prod);
+            int pos = grammar.itemPosition(item);
+            return pos < rhs.length ? rhs[pos] : -1;
+        }
+
+        Item advance() {
+            return new Item(grammar, item + 1, origin);
+        }
+
+        public boolean equals(Object obj) {
+            Item o = (Item)obj;
+            return o != null && item == o.item && origin == o.origin;
+        }
+
+        public int hashCode() {
+            return 31*item + 17*origin;
+        }
+    }
+}
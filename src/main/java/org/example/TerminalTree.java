@@ -23,6 +23,11 @@ public class TerminalTree extends ParseTree {
         return 1;
     }
 
+    // Método que devuelve el número de nodos, 1 para nodos terminales
+    public int size() {
+        return 1;
+    }
+
     // Método que devuelve el nombre corto del símbolo
     public String shortName() {
         return sym;
@@ -43,7 +48,11 @@ public class TerminalTree extends ParseTree {
     }
 
     // Método protegido que dibuja el nodo en un objeto SVG
-    protected final int draw(SVG out, int x, int y, int levels) {
+    protected final void draw(SVG out, TreeLayout layout, int node) {
+        int x = layout.left(node);
+        int y = layout.y(node);
+        int levels = layout.levels(node);
+
         // Dibuja el símbolo en la posición actual del árbol
         out.text(x, y, SYMBOL_COLOUR, sym);
         
@@ -55,8 +64,6 @@ public class TerminalTree extends ParseTree {
         out.startLines(LINE_COLOUR); // Inicia el dibujo de líneas
         out.line(x, y + BOTTOM, x, ly - TOP); // Dibuja la línea de conexión
         out.endLines(); // Finaliza el dibujo de líneas
-        
-        return x; // Retorna la posición horizontal actual
     }
 
     // Método protegido que agrega el símbolo a un buffer de cadena
@@ -0,0 +1,92 @@
+package org.example;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * TreeFactory: Crea árboles de análisis y listas de hijos internados ("hash-consing").
+ *
+ * Cada estructura se crea una sola vez por fábrica: pedir dos veces el mismo terminal, la
+ * misma lista (mismo primer elemento y mismo resto) o el mismo no terminal (mismo símbolo
+ * y misma lista de hijos) devuelve el mismo objeto. Como los componentes ya están
+ * internados, basta buscarlos por referencia, así que crear un nodo cuesta O(1); y dos
+ * nodos de la misma fábrica son iguales si y sólo si son el mismo objeto, de modo que
+ * equals no recorre los subárboles. En los análisis ambiguos, además, los subárboles
+ * comunes a varios árboles se guardan una sola vez.
+ *
+ * Los elementos de las listas deben haberse creado con la misma fábrica. La fábrica
+ * conserva todo lo que crea, así que se usa una por análisis, y no es
+ * segura para varios hilos.
+ */
+public class TreeFactory {
+    private final Map<String, TerminalTree> terminals = new HashMap<>();
+    private final Map<ListKey, ImmutableListNode<ParseTree>> lists = new HashMap<>();
+    // Para cada símbolo, los no terminales según su lista de hijos (null si no tiene)
+    private final Map<String, IdentityHashMap<ImmutableListNode<ParseTree>, NonTerminalTree>> nonTerminals =
+        new HashMap<>();
+
+    /** @return El árbol del terminal 'sym' */
+    public TerminalTree terminal(String sym) {
+        TerminalTree t = terminals.get(sym);
+        if (t == null) {
+            t = new TerminalTree(sym);
+            terminals.put(sym, t);
+        }
+        return t;
+    }
+
+    /** @return La lista con 'head' delante de 'tail' */
+    public ImmutableListNode<ParseTree> list(ParseTree head, ImmutableListNode<ParseTree> tail) {
+        ListKey key = new ListKey(head, tail);
+        ImmutableListNode<ParseTree> l = lists.get(key);
+        if (l == null) {
+            l = new ImmutableListNode<>(head, tail, this);
+            lists.put(key, l);
+        }
+        return l;
+    }
+
+    /** @return El árbol del no terminal 'sym' con los hijos dados */
+    public NonTerminalTree nonTerminal(String sym, ImmutableListNode<ParseTree> children) {
+        IdentityHashMap<ImmutableListNode<ParseTree>, NonTerminalTree> bySym = nonTerminals.get(sym);
+        if (bySym == null) {
+            bySym = new IdentityHashMap<>();
+            nonTerminals.put(sym, bySym);
+        }
+        NonTerminalTree t = bySym.get(children);
+        if (t == null) {
+            t = new NonTerminalTree(sym, ImmutableListNode.iterable(children), this);
+            bySym.put(children, t);
+        }
+        return t;
+    }
+
+    /** @return Número de nodos distintos creados */
+    public int size() {
+        int n = terminals.size() + lists.size();
+        for (Map<ImmutableListNode<ParseTree>, NonTerminalTree> m : nonTerminals.values())
+            n = n + m.size();
+        return n;
+    }
+
+    // Clave de una lista: sus dos componentes, comparados por referencia
+    private static final class ListKey {
+        private final ParseTree head;
+        private final ImmutableListNode<ParseTree> tail;
+
+        ListKey(ParseTree head, ImmutableListNode<ParseTree> tail) {
+            this.head = head;
+            this.tail = tail;
+        }
+
+        public boolean equals(Object obj) {
+            ListKey o = (ListKey)obj;
+            return o != null && head == o.head && tail == o.tail;
+        }
+
+        public int hashCode() {
+            return 31*System.identityHashCode(head) + System.identityHashCode(tail);
+        }
+    }
+}
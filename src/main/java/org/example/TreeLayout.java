@@ -0,0 +1,140 @@
+package org.example;
+
+/**
+ * TreeLayout: Posiciones de los nodos de un árbol de análisis para dibujarlo en SVG.
+ *
+ * El dibujo se hace en dos pasadas, ambas sin recursión. La primera numera los nodos en
+ * preorden y calcula, en arrays de enteros, la coordenada x del borde izquierdo y la
+ * profundidad de cada uno, y después, recorriendo los nodos hacia atrás (los hijos antes que
+ * los padres), la coordenada x de su raíz. Como se conoce el número de nodos de cada subárbol
+ * (ParseTree.size), los hijos del nodo i empiezan en i+1 y cada uno en el siguiente al último
+ * nodo del anterior. La segunda pasada dibuja los nodos en postorden, el mismo orden en que
+ * los dibujaba la versión recursiva, así que el SVG resultante es el mismo.
+ *
+ * Los arrays se reservan una sola vez por árbol. Un subárbol compartido (por ejemplo, por una
+ * TreeFactory) se numera y se dibuja una vez por cada aparición.
+ */
+final class TreeLayout {
+    private final ParseTree[] nodes;  // Nodos en preorden
+    private final int[] left;         // Coordenada x del borde izquierdo de cada subárbol
+    private final int[] depth;        // Profundidad de cada nodo (la raíz tiene 0)
+    private final int[] rootX;        // Coordenada x de la raíz de cada subárbol
+    private final int[] postorder;    // Índices de los nodos en postorden
+    private final int y;              // Coordenada y de la raíz
+    private final int levels;         // Niveles del árbol (su altura)
+
+    /**
+     * Calcula la disposición de un árbol.
+     * @param root Raíz del árbol
+     * @param x Coordenada x del borde izquierdo del árbol
+     * @param y Coordenada y de la raíz
+     */
+    TreeLayout(ParseTree root, int x, int y) {
+        int n = root.size();
+        this.nodes = new ParseTree[n];
+        this.left = new int[n];
+        this.depth = new int[n];
+        this.rootX = new int[n];
+        this.postorder = new int[n];
+        this.y = y;
+        this.levels = root.height();
+
+        // Preorden: cada nodo coloca a sus hijos, que siempre están detrás de él
+        nodes[0] = root;
+        left[0] = x;
+        for (int i = 0; i < n; i++) {
+            ParseTree t = nodes[i];
+            // Los nodos que terminan antes que éste y no son sus antepasados, más sus descendientes
+            postorder[i - depth[i] + t.size() - 1] = i;
+            if (t instanceof NonTerminalTree) {
+                int j = i + 1;
+                int tx = left[i];
+                for (ParseTree c : ((NonTerminalTree)t).children()) {
+                    nodes[j] = c;
+                    left[j] = tx;
+                    depth[j] = depth[i] + 1;
+                    tx = tx + c.width()*ParseTree.HSEP;
+                    j = j + c.size();
+                }
+            }
+        }
+
+        // De atrás hacia delante, para tener las raíces de los hijos antes que la del padre
+        for (int i = n - 1; i >= 0; i--) {
+            int count = childCount(i);
+            if (count == 0) {
+                rootX[i] = left[i];
+            } else {
+                // La mediana de las coordenadas x de las raíces de los hijos
+                int a = child(i, (count-1)/2);
+                int b = (count-1)/2 == count/2 ? a : next(a);
+                rootX[i] = (rootX[a] + rootX[b])/2;
+            }
+        }
+    }
+
+    /**
+     * Dibuja todos los nodos, en postorden.
+     * @param out Objeto SVG en el que se dibuja
+     */
+    void draw(SVG out) {
+        for (int i : postorder)
+            nodes[i].draw(out, this, i);
+    }
+
+    /** @return Número de nodos */
+    int size() {
+        return nodes.length;
+    }
+
+    /** @return Coordenada x del borde izquierdo del subárbol del nodo i */
+    int left(int i) {
+        return left[i];
+    }
+
+    /** @return Coordenada y del nodo i */
+    int y(int i) {
+        return y + depth[i]*ParseTree.VSEP;
+    }
+
+    /** @return Niveles que quedan por debajo del nodo i, él incluido */
+    int levels(int i) {
+        return levels - depth[i];
+    }
+
+    /** @return Coordenada x de la raíz del subárbol del nodo i */
+    int rootX(int i) {
+        return rootX[i];
+    }
+
+    /** @return Índice del primer hijo del nodo i (si tiene alguno) */
+    int firstChild(int i) {
+        return i + 1;
+    }
+
+    /** @return Índice siguiente al último nodo del subárbol del nodo i */
+    int end(int i) {
+        return i + nodes[i].size();
+    }
+
+    /** @return Índice del siguiente hermano del nodo i (o end() de su padre) */
+    int next(int i) {
+        return i + nodes[i].size();
+    }
+
+    // Número de hijos del nodo i
+    private int childCount(int i) {
+        int count = 0;
+        for (int j = firstChild(i); j < end(i); j = next(j))
+            count++;
+        return count;
+    }
+
+    // Índice del hijo k del nodo i
+    private int child(int i, int k) {
+        int j = firstChild(i);
+        for (; k > 0; k--)
+            j = next(j);
+        return j;
+    }
+}
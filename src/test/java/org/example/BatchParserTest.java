@@ -0,0 +1,79 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+class BatchParserTest {
+    // Analiza un lote en cuatro hilos
+    private static List<BatchResult> parseAll(Grammar g, List<ArrayList<String>> inputs, ParseOptions options,
+                                              boolean keepTrees) {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            return new BatchParser(g.compile(), options, executor, 4).parseAll(inputs, keepTrees);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void countsMatchForestInInputOrder() {
+        Grammar g = TestGrammars.ambiguous();
+        ContextFreeParser parser = new ContextFreeParser(g);
+        ArrayList<ArrayList<String>> inputs = TestGrammars.allInputs(new String[] {"x", "+", "*"}, 6);
+        List<BatchResult> results = parseAll(g, inputs, ParseOptions.unlimited(), false);
+        assertEquals(inputs.size(), results.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            BatchResult r = results.get(i);
+            assertEquals(i, r.index());
+            assertEquals(parser.countDerivations(inputs.get(i)), r.treeCount(), "count " + inputs.get(i));
+            assertEquals(parser.recognize(inputs.get(i)), r.accepted(), "accepted " + inputs.get(i));
+            assertFalse(r.truncated());
+            assertTrue(r.trees().isEmpty());
+        }
+    }
+
+    @Test
+    void keepsTreesOnRequest() {
+        Grammar g = TestGrammars.expressions();
+        ContextFreeParser parser = new ContextFreeParser(g);
+        ArrayList<ArrayList<String>> inputs = TestGrammars.allInputs(new String[] {"x", "+", "(", ")"}, 5);
+        List<BatchResult> results = parseAll(g, inputs, ParseOptions.unlimited(), true);
+        for (int i = 0; i < inputs.size(); i++) {
+            ArrayList<NonTerminalTree> expected = new ArrayList<>();
+            parser.parse(inputs.get(i), expected);
+            assertEquals(new HashSet<>(expected), new HashSet<>(results.get(i).trees()), "trees " + inputs.get(i));
+        }
+    }
+
+    @Test
+    void countsAmbiguousInputsExactly() {
+        // x+x+...+x con 16 x tiene Catalan(15) árboles, muchos más de los que se construirían
+        ArrayList<String> input = TestGrammars.tokens("x");
+        for (int i = 1; i < 16; i++) {
+            input.add("+");
+            input.add("x");
+        }
+        List<ArrayList<String>> inputs = List.of(input);
+        BatchResult r = parseAll(TestGrammars.ambiguous(), inputs, ParseOptions.unlimited().setMaxTrees(10), true).get(0);
+        assertEquals(DerivationCount.of(BigInteger.valueOf(9694845)), r.treeCount());
+        assertEquals(10, r.trees().size());
+        assertFalse(r.truncated());
+
+        Grammar cyclic = TestGrammars.grammar("S = A b | c", "A = A | a");
+        List<BatchResult> results = parseAll(cyclic, List.of(TestGrammars.tokens("a b"), TestGrammars.tokens("c")),
+                                             ParseOptions.unlimited(), false);
+        assertTrue(results.get(0).treeCount().isInfinite());
+        assertTrue(results.get(0).accepted());
+        assertEquals(DerivationCount.of(BigInteger.ONE), results.get(1).treeCount());
+    }
+}
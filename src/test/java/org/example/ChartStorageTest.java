@@ -0,0 +1,49 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class ChartStorageTest {
+    private static final ParseOptions DIRECT =
+        ParseOptions.unlimited().setChartStorage(ParseOptions.ChartStorage.OFF_HEAP);
+    private static final ParseOptions MAPPED =
+        ParseOptions.unlimited().setChartStorage(ParseOptions.ChartStorage.OFF_HEAP).setScratchThreshold(0);
+
+    // Compara los conjuntos en el heap, en memoria directa y en un fichero proyectado
+    private static void checkStorage(ContextFreeParser parser, ArrayList<String> input) {
+        boolean expected = parser.recognize(input);
+        assertEquals(expected, parser.recognize(input, DIRECT), "direct " + input);
+        assertEquals(expected, parser.recognize(input, MAPPED), "mapped " + input);
+    }
+
+    private static void checkStorage(Grammar g, String[] alphabet, int maxLength) {
+        ContextFreeParser parser = new ContextFreeParser(g);
+        for (ArrayList<String> input : TestGrammars.allInputs(alphabet, maxLength))
+            checkStorage(parser, input);
+    }
+
+    @Test
+    void offHeapMatchesHeap() {
+        checkStorage(TestGrammars.expressions(), new String[] {"x", "+", "*", "(", ")"}, 5);
+        checkStorage(TestGrammars.ambiguous(), new String[] {"x", "+", "*"}, 6);
+        checkStorage(TestGrammars.nullable(), new String[] {"a", "b", "c"}, 6);
+    }
+
+    @Test
+    void offHeapMatchesHeapOnLongInputs() {
+        ContextFreeParser parser = new ContextFreeParser(TestGrammars.expressions());
+        ArrayList<String> input = TestGrammars.tokens("x");
+        for (int i = 0; i < 5000; i++)
+            input.addAll(TestGrammars.tokens(i % 2 == 0 ? "+ ( x * x )" : "* x"));
+        assertTrue(parser.recognize(input, MAPPED));
+        checkStorage(parser, input);
+        input.add(input.size() / 2, ")");
+        assertFalse(parser.recognize(input, MAPPED));
+        checkStorage(parser, input);
+    }
+}
@@ -0,0 +1,50 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class DerivationCountTest {
+    // Compara el número de árboles contado con los que construye parse()
+    private static void checkCounts(Grammar g, String[] alphabet, int maxLength) {
+        ContextFreeParser parser = new ContextFreeParser(g);
+        for (ArrayList<String> input : TestGrammars.allInputs(alphabet, maxLength)) {
+            ArrayList<NonTerminalTree> trees = new ArrayList<>();
+            parser.parse(input, trees);
+            DerivationCount count = parser.countDerivations(input);
+            assertFalse(count.isInfinite(), "finite " + input);
+            assertEquals(BigInteger.valueOf(trees.size()), count.count(), "count " + input);
+        }
+    }
+
+    @Test
+    void countsMatchParse() {
+        checkCounts(TestGrammars.expressions(), new String[] {"x", "+", "*", "(", ")"}, 5);
+        checkCounts(TestGrammars.ambiguous(), new String[] {"x", "+", "*"}, 7);
+        checkCounts(TestGrammars.nullable(), new String[] {"a", "b", "c"}, 6);
+    }
+
+    @Test
+    void countsCatalanNumbers() {
+        // a^100 con S → S S | a tiene Catalan(99) árboles
+        ContextFreeParser parser = new ContextFreeParser(TestGrammars.grammar("S = S S | a"));
+        BigInteger catalan = BigInteger.ONE;
+        for (int n = 0; n < 99; n++)
+            catalan = catalan.multiply(BigInteger.valueOf(2*(2*n + 1))).divide(BigInteger.valueOf(n + 2));
+        assertEquals(DerivationCount.of(catalan), parser.countDerivations(TestGrammars.repeat("a", 100)));
+    }
+
+    @Test
+    void cyclicDerivationsAreInfinite() {
+        ContextFreeParser parser = new ContextFreeParser(TestGrammars.grammar("S = A b | c", "A = A | a"));
+        assertTrue(parser.countDerivations(TestGrammars.tokens("a b")).isInfinite());
+        // La entrada no usa el ciclo, así que el número es finito
+        assertEquals(DerivationCount.of(BigInteger.ONE), parser.countDerivations(TestGrammars.tokens("c")));
+        assertEquals(DerivationCount.of(BigInteger.ZERO), parser.countDerivations(TestGrammars.tokens("b")));
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class ExpansionTest {
+    // S -> S S | a
+    private static Grammar grammar() {
+        Grammar g = new Grammar();
+        g.addProduction("S", new ArrayList<>(List.of("S", "S")));
+        g.addProduction("S", new ArrayList<>(List.of("a")));
+        return g;
+    }
+
+    // Nodos (altura x ancho) de todos los árboles, como los cuenta Expansion
+    private static long nodes(Expansion e) {
+        long n = 0;
+        for (NonTerminalTree t : e.derivations("S"))
+            n = n + (long)t.height()*t.width();
+        return n;
+    }
+
+    @Test
+    void limitDoesNotDependOnParallelism() {
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool many = new ForkJoinPool(8);
+        try {
+            for (int limit = 1; limit < 20000; limit = limit*3/2 + 1) {
+                Expansion a = new Expansion(grammar(), limit, one, 1);
+                Expansion b = new Expansion(grammar(), limit, many, 8);
+                while (a.expand())
+                    ;
+                while (b.expand())
+                    ;
+                assertEquals(a.depth(), b.depth(), "depth with limit " + limit);
+                assertEquals(a.size(), b.size(), "size with limit " + limit);
+                assertTrue(nodes(b) <= limit, "nodes over limit " + limit);
+            }
+        } finally {
+            one.shutdown();
+            many.shutdown();
+        }
+    }
+
+    @Test
+    void limitIsExactAndFailureKeepsDerivations() {
+        Expansion unlimited = new Expansion(grammar(), Integer.MAX_VALUE);
+        for (int d = 0; d < 4; d++)
+            unlimited.expand();
+        // Con el límite justo, se llega a la misma profundidad y no más
+        Expansion e = new Expansion(grammar(), (int)nodes(unlimited));
+        for (int d = 0; d < 4; d++)
+            assertTrue(e.expand());
+        int size = e.size();
+        assertFalse(e.expand());
+        assertFalse(e.expand());
+        assertEquals(4, e.depth());
+        assertEquals(size, e.size());
+        assertEquals(unlimited.size(), e.size());
+    }
+}
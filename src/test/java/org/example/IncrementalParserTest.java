@@ -0,0 +1,67 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IncrementalParserTest {
+    private static HashSet<NonTerminalTree> trees(ParseForest forest) {
+        HashSet<NonTerminalTree> result = new HashSet<>();
+        for (NonTerminalTree t : forest.trees())
+            result.add(t);
+        return result;
+    }
+
+    // Aplica ediciones aleatorias y compara cada resultado con un análisis desde cero
+    private static void checkEdits(Grammar g, String[] alphabet, long seed) {
+        Random random = new Random(seed);
+        ContextFreeParser fresh = new ContextFreeParser(g);
+        IncrementalParser parser = new IncrementalParser(g);
+        ArrayList<String> input = new ArrayList<>();
+        for (int step = 0; step < 300; step++) {
+            int from = random.nextInt(input.size() + 1);
+            int to = from + random.nextInt(Math.min(3, input.size() - from) + 1);
+            List<String> replacement = new ArrayList<>();
+            for (int i = random.nextInt(input.size() > 10 ? 2 : 4); i > 0; i--)
+                replacement.add(alphabet[random.nextInt(alphabet.length)]);
+            boolean accepted = parser.edit(from, to, replacement);
+
+            input.subList(from, to).clear();
+            input.addAll(from, replacement);
+            assertEquals(input, parser.input(), "input after step " + step);
+            assertEquals(fresh.recognize(input), accepted, "accepted " + input);
+            assertEquals(accepted, parser.accepted());
+            assertEquals(trees(fresh.parseForest(input)), trees(parser.forest()), "trees " + input);
+        }
+    }
+
+    @Test
+    void editsMatchFreshRecognize() {
+        checkEdits(TestGrammars.expressions(), new String[] {"x", "+", "*", "(", ")"}, 1);
+    }
+
+    @Test
+    void editsMatchFreshRecognizeOnAmbiguousGrammar() {
+        checkEdits(TestGrammars.ambiguous(), new String[] {"x", "+", "*"}, 2);
+    }
+
+    @Test
+    void editsMatchFreshRecognizeWithNullables() {
+        checkEdits(TestGrammars.nullable(), new String[] {"a", "b", "c"}, 3);
+    }
+
+    @Test
+    void reusesSetsRightOfTheEdit() {
+        IncrementalParser parser = new IncrementalParser(TestGrammars.expressions());
+        assertTrue(parser.update(TestGrammars.tokens("x + x * ( x + x ) * x")));
+        assertTrue(parser.edit(0, 1, TestGrammars.tokens("( x )")));
+        // Los conjuntos a la derecha de la edición siguen siendo válidos
+        assertTrue(parser.reusedSets() >= 10, "reused " + parser.reusedSets());
+    }
+}
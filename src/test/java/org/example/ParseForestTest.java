@@ -0,0 +1,98 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+
+class ParseForestTest {
+    // Compara los árboles del bosque con los de parse() en todas las entradas cortas
+    private static void checkTrees(Grammar g, String[] alphabet, int maxLength) {
+        ContextFreeParser parser = new ContextFreeParser(g);
+        for (ArrayList<String> input : TestGrammars.allInputs(alphabet, maxLength)) {
+            ArrayList<NonTerminalTree> expected = new ArrayList<>();
+            parser.parse(input, expected);
+            ParseForest forest = parser.parseForest(input);
+            ArrayList<NonTerminalTree> actual = new ArrayList<>();
+            for (NonTerminalTree t : forest.trees())
+                actual.add(t);
+            assertEquals(! expected.isEmpty(), forest.accepted(), "accepted " + input);
+            assertEquals(expected.size(), actual.size(), "tree count " + input);
+            assertEquals(new HashSet<>(expected), new HashSet<>(actual), "trees " + input);
+        }
+    }
+
+    @Test
+    void unambiguousTreesMatchParse() {
+        checkTrees(TestGrammars.expressions(), new String[] {"x", "+", "*", "(", ")"}, 5);
+    }
+
+    @Test
+    void ambiguousTreesMatchParse() {
+        checkTrees(TestGrammars.ambiguous(), new String[] {"x", "+", "*"}, 7);
+    }
+
+    @Test
+    void nullableTreesMatchParse() {
+        checkTrees(TestGrammars.nullable(), new String[] {"a", "b", "c"}, 6);
+    }
+
+    @Test
+    void sharesSubtreesAcrossTrees() {
+        // x+x+...+x tiene un número de Catalan de árboles, pero el bosque es polinómico
+        ContextFreeParser parser = new ContextFreeParser(TestGrammars.ambiguous());
+        ParseForest forest = parser.parseForest(TestGrammars.tokens("x + x + x + x + x + x + x + x"));
+        int n = 0;
+        for (NonTerminalTree t : forest.trees())
+            n++;
+        assertEquals(429, n);
+        assertTrue(forest.size() < 429);
+        assertFalse(parser.parseForest(TestGrammars.tokens("x + +")).accepted());
+    }
+
+    // Comprueba que ranked() da los árboles de parse() ordenados por altura
+    private static void checkRanked(Grammar g, String[] alphabet, int maxLength) {
+        ContextFreeParser parser = new ContextFreeParser(g);
+        for (ArrayList<String> input : TestGrammars.allInputs(alphabet, maxLength)) {
+            ArrayList<NonTerminalTree> expected = new ArrayList<>();
+            parser.parse(input, expected);
+            ArrayList<NonTerminalTree> actual = new ArrayList<>();
+            for (NonTerminalTree t : parser.parseForest(input).ranked()) {
+                if (! actual.isEmpty())
+                    assertTrue(actual.get(actual.size() - 1).height() <= t.height(), "order " + input);
+                actual.add(t);
+            }
+            assertEquals(expected.size(), actual.size(), "tree count " + input);
+            assertEquals(new HashSet<>(expected), new HashSet<>(actual), "trees " + input);
+        }
+    }
+
+    @Test
+    void rankedTreesMatchParse() {
+        checkRanked(TestGrammars.ambiguous(), new String[] {"x", "+", "*"}, 7);
+        checkRanked(TestGrammars.nullable(), new String[] {"a", "b", "c"}, 6);
+    }
+
+    @Test
+    void enumeratesDeepTrees() {
+        // Con S → a S | a cada "a" añade un nivel al único árbol
+        int n = 5000;
+        ContextFreeParser parser = new ContextFreeParser(TestGrammars.grammar("S = a S | a"));
+        ParseForest forest = parser.parseForest(TestGrammars.repeat("a", n));
+        Iterator<NonTerminalTree> trees = forest.trees().iterator();
+        NonTerminalTree t = trees.next();
+        assertEquals(n + 1, t.height());
+        assertEquals(n, t.width());
+        assertFalse(trees.hasNext());
+        Iterator<NonTerminalTree> ranked = forest.ranked().iterator();
+        t = ranked.next();
+        assertEquals(n + 1, t.height());
+        assertEquals(n, t.width());
+        assertFalse(ranked.hasNext());
+    }
+}
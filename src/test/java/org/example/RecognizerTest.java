@@ -0,0 +1,48 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class RecognizerTest {
+    // Compara recognize() (ítems empaquetados) con el bosque y con parse() en las entradas cortas
+    private static void checkRecognize(Grammar g, String[] alphabet, int maxLength) {
+        ContextFreeParser parser = new ContextFreeParser(g);
+        for (ArrayList<String> input : TestGrammars.allInputs(alphabet, maxLength)) {
+            ArrayList<NonTerminalTree> trees = new ArrayList<>();
+            parser.parse(input, trees);
+            boolean accepted = parser.recognize(input);
+            assertEquals(parser.parseForest(input).accepted(), accepted, "forest " + input);
+            assertEquals(! trees.isEmpty(), accepted, "parse " + input);
+        }
+    }
+
+    @Test
+    void recognizeMatchesForest() {
+        checkRecognize(TestGrammars.expressions(), new String[] {"x", "+", "*", "(", ")"}, 6);
+        checkRecognize(TestGrammars.ambiguous(), new String[] {"x", "+", "*"}, 7);
+        checkRecognize(TestGrammars.nullable(), new String[] {"a", "b", "c"}, 7);
+        checkRecognize(TestGrammars.grammar("S = A b | c", "A = A | a |"), new String[] {"a", "b", "c"}, 5);
+    }
+
+    @Test
+    void reusesPooledSetsAfterLongInputs() {
+        // Una entrada larga llena conjuntos que no vuelven a la reserva; las siguientes no se ven afectadas
+        ContextFreeParser parser = new ContextFreeParser(TestGrammars.ambiguous());
+        ArrayList<String> input = TestGrammars.tokens("x");
+        for (int i = 0; i < 300; i++) {
+            input.add("+");
+            input.add("x");
+        }
+        assertTrue(parser.recognize(input));
+        input.add("+");
+        assertFalse(parser.recognize(input));
+        checkRecognize(TestGrammars.ambiguous(), new String[] {"x", "+", "*"}, 5);
+        assertTrue(parser.recognize(TestGrammars.tokens("x * x + x")));
+        assertFalse(parser.recognize(TestGrammars.tokens("x x")));
+    }
+}
@@ -0,0 +1,78 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class SentenceGeneratorTest {
+    // S -> S a S | ε: anulable y recursiva por los dos lados, pero no cíclica
+    static Grammar nullableRecursive() {
+        Grammar g = new Grammar();
+        g.addProduction("S", new ArrayList<>(List.of("S", "a", "S")));
+        g.addProduction("S", new ArrayList<>());
+        return g;
+    }
+
+    private static ArrayList<String> as(int n) {
+        return new ArrayList<>(Collections.nCopies(n, "a"));
+    }
+
+    @Test
+    void countsNullableRecursiveGrammar() {
+        Grammar g = nullableRecursive();
+        assertFalse(g.compile().properties().infinitelyAmbiguous());
+        SentenceGenerator gen = new SentenceGenerator(g);
+        ContextFreeParser parser = new ContextFreeParser(g);
+        // La única frase de longitud n es a^n, con tantas derivaciones como el número de Catalan C(n)
+        for (int n = 0; n <= 8; n++) {
+            BigInteger expected = parser.countDerivations(as(n)).count();
+            assertEquals(expected, gen.count(n), "length " + n);
+        }
+        assertEquals(BigInteger.valueOf(5), gen.count(3));
+    }
+
+    @Test
+    void listsEveryDerivation() {
+        SentenceGenerator gen = new SentenceGenerator(nullableRecursive());
+        assertEquals(List.of(""), gen.sentences(0, false).collect(Collectors.toList()));
+        assertEquals(14, gen.sentences(4, false).count());
+        assertEquals(List.of("a a a a"), gen.sentences(4, true).collect(Collectors.toList()));
+        for (int r = 0; r < 14; r++)
+            assertEquals("a a a a", gen.tree(4, BigInteger.valueOf(r)).sentence());
+    }
+
+    // Cada frase de cada longitud aparece tantas veces como derivaciones cuenta el analizador
+    private static void checkLanguage(Grammar g, String[] alphabet, int maxLength) {
+        SentenceGenerator gen = new SentenceGenerator(g);
+        ContextFreeParser parser = new ContextFreeParser(g);
+        List<Map<String, BigInteger>> expected = new ArrayList<>();
+        for (int n = 0; n <= maxLength; n++)
+            expected.add(new HashMap<>());
+        for (ArrayList<String> input : TestGrammars.allInputs(alphabet, maxLength)) {
+            BigInteger count = parser.countDerivations(input).count();
+            if (count.signum() > 0)
+                expected.get(input.size()).put(String.join(" ", input), count);
+        }
+        for (int n = 0; n <= maxLength; n++) {
+            Map<String, BigInteger> actual = new HashMap<>();
+            gen.sentences(n, false).forEach(s -> actual.merge(s, BigInteger.ONE, BigInteger::add));
+            assertEquals(expected.get(n), actual, "length " + n);
+        }
+    }
+
+    @Test
+    void matchesParserOnShortSentences() {
+        checkLanguage(TestGrammars.expressions(), new String[] {"x", "+", "*", "(", ")"}, 5);
+        checkLanguage(TestGrammars.ambiguous(), new String[] {"x", "+", "*"}, 7);
+        checkLanguage(TestGrammars.nullable(), new String[] {"a", "b", "c"}, 6);
+    }
+}
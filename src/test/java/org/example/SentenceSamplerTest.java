@@ -0,0 +1,58 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class SentenceSamplerTest {
+    // Paréntesis equilibrados, anulable y recursiva por la izquierda o por la derecha
+    private static Grammar parentheses(boolean left) {
+        Grammar g = new Grammar();
+        g.addProduction("S", new ArrayList<>(left ? List.of("S", "(", "S", ")") : List.of("(", "S", ")", "S")));
+        g.addProduction("S", new ArrayList<>());
+        return g;
+    }
+
+    @Test
+    void samplesNullableRecursiveGrammar() {
+        SentenceSampler sampler = new SentenceSampler(SentenceGeneratorTest.nullableRecursive(), 5);
+        assertEquals(Math.log(5), sampler.logCount(3), 1e-12);
+        assertEquals("", sampler.sample(0, new SplittableRandom(1)));
+        assertEquals("a a a a a", sampler.sample(5, new SplittableRandom(1)));
+    }
+
+    @Test
+    void samplesUniformly() {
+        for (boolean left : new boolean[] {true, false}) {
+            Grammar g = parentheses(left);
+            SentenceSampler sampler = new SentenceSampler(g, 8);
+            assertFalse(sampler.hasSentences(7));
+            // Gramática no ambigua: cada una de las 14 frases de longitud 8 es un árbol
+            List<String> all = new SentenceGenerator(g).sentences(8, false).collect(Collectors.toList());
+            assertEquals(14, all.size());
+            assertEquals(Math.log(14), sampler.logCount(8), 1e-12);
+
+            int samples = 14000;
+            Map<String, Integer> seen = new HashMap<>();
+            sampler.samples(8, samples, new SplittableRandom(42)).forEach(s -> seen.merge(s, 1, Integer::sum));
+            assertEquals(all.size(), seen.size());
+            // Chi cuadrado con 13 grados de libertad: 34.5 es el valor crítico para p = 0.001
+            double expected = (double)samples / all.size();
+            double chi2 = 0;
+            for (String s : all) {
+                double d = seen.getOrDefault(s, 0) - expected;
+                chi2 = chi2 + d*d/expected;
+            }
+            assertTrue(chi2 < 34.5, "chi-squared " + chi2);
+        }
+    }
+}
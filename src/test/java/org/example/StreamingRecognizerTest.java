@@ -0,0 +1,76 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class StreamingRecognizerTest {
+    /**
+     * Lee cada entrada hasta maxLength símbolo a símbolo y compara el estado tras cada uno con
+     * recognize() sobre el prefijo. Un prefijo es viable si alguna frase aceptada de hasta
+     * maxLength símbolos empieza por él. Para los prefijos de hasta 'exact' símbolos eso basta
+     * para saber si es viable; de los más largos sin ninguna frase así sólo se comprueba que
+     * no se acepten.
+     */
+    private static void checkPrefixes(Grammar g, String[] alphabet, int maxLength, int exact) {
+        ContextFreeParser parser = new ContextFreeParser(g);
+        ArrayList<ArrayList<String>> inputs = TestGrammars.allInputs(alphabet, maxLength);
+        HashSet<List<String>> accepted = new HashSet<>();
+        HashSet<List<String>> viable = new HashSet<>();
+        for (ArrayList<String> input : inputs)
+            if (parser.recognize(input)) {
+                accepted.add(input);
+                for (int i = 0; i <= input.size(); i++)
+                    viable.add(new ArrayList<>(input.subList(0, i)));
+            }
+
+        StreamingRecognizer streaming = new StreamingRecognizer(g);
+        for (ArrayList<String> input : inputs) {
+            if (input.isEmpty())
+                continue;
+            streaming.reset();
+            for (int i = 1; i <= input.size(); i++) {
+                List<String> prefix = input.subList(0, i);
+                StreamingRecognizer.Status actual = streaming.push(input.get(i - 1));
+                assertEquals(actual, streaming.status());
+                if (accepted.contains(prefix))
+                    assertEquals(StreamingRecognizer.Status.ACCEPTED, actual, "status of " + prefix);
+                else if (viable.contains(prefix))
+                    assertEquals(StreamingRecognizer.Status.VIABLE, actual, "status of " + prefix);
+                else if (i <= exact)
+                    assertEquals(StreamingRecognizer.Status.DEAD, actual, "status of " + prefix);
+                else
+                    assertFalse(actual == StreamingRecognizer.Status.ACCEPTED, "status of " + prefix);
+            }
+            // consume() da el mismo estado final que push()
+            StreamingRecognizer other = new StreamingRecognizer(g);
+            assertEquals(streaming.status(), other.consume(input.iterator()), "consume " + input);
+        }
+    }
+
+    @Test
+    void statusMatchesRecognizeOnExpressions() {
+        checkPrefixes(TestGrammars.expressions(), new String[] {"x", "+", "*", "(", ")"}, 7, 3);
+    }
+
+    @Test
+    void statusMatchesRecognizeOnAmbiguousGrammar() {
+        checkPrefixes(TestGrammars.ambiguous(), new String[] {"x", "+", "*"}, 7, 5);
+    }
+
+    @Test
+    void statusMatchesRecognizeWithNullables() {
+        checkPrefixes(TestGrammars.nullable(), new String[] {"a", "b", "c"}, 8, 3);
+    }
+
+    @Test
+    void unrealizableProductionsAreNotViable() {
+        // Tras "a a" sólo queda U, que no deriva ninguna frase
+        checkPrefixes(TestGrammars.grammar("S = a U | a b", "U = a U"), new String[] {"a", "b"}, 6, 6);
+    }
+}
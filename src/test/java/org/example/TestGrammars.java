@@ -0,0 +1,76 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Gramáticas y entradas para las pruebas.
+ */
+final class TestGrammars {
+    private TestGrammars() {
+    }
+
+    /**
+     * Construye una gramática a partir de reglas como "E = E + T | T". Los símbolos se
+     * separan con espacios y una alternativa vacía es una producción épsilon. El símbolo
+     * inicial es el de la primera regla.
+     */
+    static Grammar grammar(String... rules) {
+        Grammar g = new Grammar();
+        for (String rule : rules) {
+            String[] sides = rule.split("=", 2);
+            String lhs = sides[0].trim();
+            for (String alt : sides[1].split("\\|", -1))
+                g.addProduction(lhs, tokens(alt));
+        }
+        return g;
+    }
+
+    /** @return Los símbolos de una entrada, separados con espacios */
+    static ArrayList<String> tokens(String input) {
+        ArrayList<String> result = new ArrayList<>();
+        for (String s : input.trim().split("\\s+"))
+            if (! s.isEmpty())
+                result.add(s);
+        return result;
+    }
+
+    /** @return Una entrada de n copias de un símbolo */
+    static ArrayList<String> repeat(String sym, int n) {
+        String[] syms = new String[n];
+        Arrays.fill(syms, sym);
+        return new ArrayList<>(Arrays.asList(syms));
+    }
+
+    /** Expresiones con precedencia: no ambigua */
+    static Grammar expressions() {
+        return grammar("E = E + T | T", "T = T * F | F", "F = ( E ) | x");
+    }
+
+    /** Expresiones sin precedencia: ambigua */
+    static Grammar ambiguous() {
+        return grammar("E = E + E | E * E | x");
+    }
+
+    /** Con símbolos anulables */
+    static Grammar nullable() {
+        return grammar("S = A S b | c", "A = a | ");
+    }
+
+    /** Todas las cadenas sobre un alfabeto hasta una longitud, en orden de longitud */
+    static ArrayList<ArrayList<String>> allInputs(String[] alphabet, int maxLength) {
+        ArrayList<ArrayList<String>> result = new ArrayList<>();
+        result.add(new ArrayList<>());
+        for (int from = 0; from < result.size(); from++) {
+            ArrayList<String> s = result.get(from);
+            if (s.size() == maxLength)
+                continue;
+            for (String a : alphabet) {
+                ArrayList<String> t = new ArrayList<>(s);
+                t.add(a);
+                result.add(t);
+            }
+        }
+        return result;
+    }
+}